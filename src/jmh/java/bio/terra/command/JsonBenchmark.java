@@ -0,0 +1,128 @@
+package bio.terra.command;
+
+import bio.terra.datarepo.model.DatasetSummaryModel;
+import bio.terra.datarepo.model.DirectoryDetailModel;
+import bio.terra.datarepo.model.EnumerateDatasetModel;
+import bio.terra.datarepo.model.FileModel;
+import bio.terra.datarepo.model.FileModelType;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Read large dataset enumerations and deep file trees with Jackson, and write them back out the
+ * way --format json does. Stdout is replaced by a stream that discards the output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonBenchmark {
+  private PrintStream stdout;
+
+  @State(Scope.Benchmark)
+  public static class Datasets {
+    @Param({"1000", "10000"})
+    public int count;
+
+    EnumerateDatasetModel model;
+    String json;
+
+    @Setup
+    public void setup() throws IOException {
+      List<DatasetSummaryModel> items = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        items.add(
+            new DatasetSummaryModel()
+                .id(String.format("%08x-0000-4000-8000-%012x", i, i))
+                .name("dataset_" + i)
+                .description("Benchmark dataset number " + i)
+                .defaultProfileId("6f2d8c1e-0000-4000-8000-000000000001")
+                .createdDate("2020-06-01T12:00:00.000Z"));
+      }
+      model = new EnumerateDatasetModel().total(count).items(items);
+      json = CommandUtils.getObjectMapper().writeValueAsString(model);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class FileTree {
+    private static final int FANOUT = 5;
+
+    // The tree has FANOUT^depth files
+    @Param({"3", "6"})
+    public int depth;
+
+    FileModel model;
+    String json;
+
+    @Setup
+    public void setup() throws IOException {
+      model = makeTree("/", depth);
+      json = CommandUtils.getObjectMapper().writeValueAsString(model);
+    }
+
+    private static FileModel makeTree(String path, int depth) {
+      FileModel file = new FileModel().fileId(Integer.toHexString(path.hashCode())).path(path);
+      if (depth == 0) {
+        return file.fileType(FileModelType.FILE).size((long) path.length() * 1024);
+      }
+      List<FileModel> contents = new ArrayList<>(FANOUT);
+      for (int i = 0; i < FANOUT; i++) {
+        contents.add(makeTree(path + "dir" + i + (depth == 1 ? ".vcf" : "/"), depth - 1));
+      }
+      return file.fileType(FileModelType.DIRECTORY)
+          .directoryDetail(new DirectoryDetailModel().enumerated(true).contents(contents));
+    }
+  }
+
+  @Setup
+  public void setup() {
+    stdout = System.out;
+    System.setOut(
+        new PrintStream(
+            new OutputStream() {
+              @Override
+              public void write(int b) {}
+
+              @Override
+              public void write(byte[] b, int off, int len) {}
+            }));
+  }
+
+  @TearDown
+  public void teardown() {
+    System.setOut(stdout);
+  }
+
+  @Benchmark
+  public EnumerateDatasetModel readDatasets(Datasets datasets) throws IOException {
+    return CommandUtils.getObjectMapper().readValue(datasets.json, EnumerateDatasetModel.class);
+  }
+
+  @Benchmark
+  public FileModel readFileTree(FileTree tree) throws IOException {
+    return CommandUtils.getObjectMapper().readValue(tree.json, FileModel.class);
+  }
+
+  @Benchmark
+  public void printDatasets(Datasets datasets) {
+    CommandUtils.outputPrettyJson(datasets.model);
+  }
+
+  @Benchmark
+  public void printFileTree(FileTree tree) {
+    CommandUtils.outputPrettyJson(tree.model);
+  }
+}
@@ -0,0 +1,90 @@
+package bio.terra.formatting;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Print tables of file listing rows to a stream that discards them. A list is measured for widths
+ * up front; an iterator is measured from a sample of its first rows and streamed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TableFormatterBenchmark {
+  @Param({"10000", "100000", "1000000"})
+  public int rows;
+
+  private List<Row> items;
+  private PrintStream out;
+
+  private static final class Row extends TableFormatBase {
+    private static final String[] headers = new String[] {"Name", "Type", "Size"};
+    private static final int[] lengths = new int[] {4, 9, 4};
+    private static final boolean[] computeLengths = new boolean[] {true, false, true};
+    private final String name;
+    private final String type;
+    private final String size;
+
+    Row(String name, String type, String size) {
+      super(headers, lengths, computeLengths);
+      this.name = name;
+      this.type = type;
+      this.size = size;
+    }
+
+    @Override
+    public String getData(int index) {
+      switch (index) {
+        case 0:
+          return name;
+        case 1:
+          return type;
+        default:
+          return size;
+      }
+    }
+  }
+
+  @Setup
+  public void setup() {
+    items = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      items.add(
+          new Row(
+              "sample-" + i + ".bam",
+              (i % 10 == 0) ? "directory" : "file",
+              Long.toString(i * 7919L % 100000000L)));
+    }
+    out =
+        new PrintStream(
+            new OutputStream() {
+              @Override
+              public void write(int b) {}
+
+              @Override
+              public void write(byte[] b, int off, int len) {}
+            });
+  }
+
+  @Benchmark
+  public void printList() {
+    new TableFormatter<>(items, out, 2).printTable();
+  }
+
+  @Benchmark
+  public void printIterator() {
+    new TableFormatter<>(items.iterator(), out, 2, TableFormatter.DEFAULT_SAMPLE_SIZE)
+        .printTable();
+  }
+}
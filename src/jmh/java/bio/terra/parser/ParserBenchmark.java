@@ -0,0 +1,46 @@
+package bio.terra.parser;
+
+import bio.terra.command.CommandRunner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parse command lines with the full jadecli syntax, as help and the shell do. Commands are tried
+ * in syntax order, so the snapshot commands, merged last, are the slowest to find.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+  @Param({
+    "help",
+    "ls /mydataset/files -R",
+    "dataset file load-bulk -i manifest.json -p myprofile -j 8 --resume mydataset",
+    "snapshot show mysnapshot --format json"
+  })
+  public String commandLine;
+
+  private Parser parser;
+  private String[] args;
+
+  @Setup
+  public void setup() {
+    parser = new CommandRunner().getFullParser();
+    args = commandLine.split(" ");
+    if (parser.parse(args) == null) {
+      throw new IllegalStateException("Invalid benchmark command line: " + commandLine);
+    }
+  }
+
+  @Benchmark
+  public ParsedResult parse() {
+    return parser.parse(args);
+  }
+}
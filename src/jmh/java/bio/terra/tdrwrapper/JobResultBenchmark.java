@@ -0,0 +1,54 @@
+package bio.terra.tdrwrapper;
+
+import bio.terra.datarepo.model.BulkLoadArrayResultModel;
+import bio.terra.datarepo.model.BulkLoadFileResultModel;
+import bio.terra.datarepo.model.BulkLoadFileState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Map a finished job's result, read as generic JSON, to its model class, as the futures returned
+ * by the data repo wrapper do. Bulk file loads have the largest results: one entry per file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JobResultBenchmark {
+  @Param({"100", "10000"})
+  public int files;
+
+  private Map<?, ?> result;
+
+  @Setup
+  public void setup() {
+    List<BulkLoadFileResultModel> fileResults = new ArrayList<>(files);
+    for (int i = 0; i < files; i++) {
+      fileResults.add(
+          new BulkLoadFileResultModel()
+              .sourcePath("gs://benchmark-bucket/input/sample-" + i + ".bam")
+              .targetPath("/samples/sample-" + i + ".bam")
+              .state((i % 100 == 0) ? BulkLoadFileState.FAILED : BulkLoadFileState.SUCCEEDED)
+              .fileId((i % 100 == 0) ? null : Integer.toHexString(i))
+              .error((i % 100 == 0) ? "Source file not found" : null));
+    }
+    result =
+        new ObjectMapper()
+            .convertValue(new BulkLoadArrayResultModel().loadFileResults(fileResults), Map.class);
+  }
+
+  @Benchmark
+  public BulkLoadArrayResultModel convertResult() {
+    return JobWatcher.convertResult(result, BulkLoadArrayResultModel.class);
+  }
+}
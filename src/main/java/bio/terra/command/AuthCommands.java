@@ -72,6 +72,8 @@ public final class AuthCommands {
     Context.getInstance()
         .setContextItem(ContextEnum.AUTH_TYPE, ContextAuthTypeEnum.AUTH_TYPE_SA.getContextValue());
     Context.getInstance().setContextItem(ContextEnum.AUTH_KEY_FILE, keyFile);
+    // Check the key file now rather than trusting a cached token
+    Login.clearAccessToken();
     Login.requiresLogin();
   }
 }
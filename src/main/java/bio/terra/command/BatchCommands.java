@@ -0,0 +1,241 @@
+package bio.terra.command;
+
+import bio.terra.parser.Argument;
+import bio.terra.parser.Command;
+import bio.terra.parser.Option;
+import bio.terra.parser.ParsedResult;
+import bio.terra.parser.Syntax;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+public final class BatchCommands {
+  public static final int DEFAULT_JOBS = 4;
+  // Commands started ahead of the one whose output is being written, per worker. Bounds the
+  // output held in memory while keeping the workers busy behind a slow command.
+  private static final int LOOKAHEAD_PER_JOB = 4;
+  private static final String STDIN = "-";
+
+  // Batches do not nest: the output capture is installed once
+  private static final AtomicInteger running = new AtomicInteger();
+  private static final AtomicInteger workerCount = new AtomicInteger();
+  private static final ThreadLocal<Boolean> batchCommand = ThreadLocal.withInitial(() -> false);
+
+  private BatchCommands() {}
+
+  public static Syntax getSyntax() {
+    return new Syntax()
+        .addCommand(
+            new Command()
+                .primaryNames(new String[] {"batch"})
+                .commandId(CommandEnum.COMMAND_BATCH.getCommandId())
+                .help(
+                    "run the jadecli commands in a file, one per line, in this process; each"
+                        + " command's output is written in file order, followed by a summary of"
+                        + " exit statuses")
+                .addOption(
+                    new Option()
+                        .shortName("j")
+                        .longName("jobs")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help(
+                            "Number of commands to run at once; defaults to "
+                                + DEFAULT_JOBS
+                                + ". Commands that change session settings affect the others."))
+                .addArgument(
+                    new Argument()
+                        .name("file")
+                        .optional(false)
+                        .help("File of commands; - reads them from stdin")));
+  }
+
+  /**
+   * Dispatch the batch command.
+   *
+   * @param command command to run
+   * @param result parsed command line
+   * @param runner runs one command line and returns its exit status
+   * @return true if the command was handled
+   */
+  public static boolean dispatchCommand(
+      CommandEnum command, ParsedResult result, ToIntFunction<String[]> runner) {
+    if (command != CommandEnum.COMMAND_BATCH) {
+      return false;
+    }
+    batch(result.getArgument("file"), result.getArgument("jobs"), runner);
+    return true;
+  }
+
+  /**
+   * Tell whether the calling thread is running a batch command. A batch command's standard output
+   * is held in memory until its turn to be written, so commands with unbounded output refuse it.
+   *
+   * @return true if this thread's output is captured by a batch
+   */
+  public static boolean isBatchCommand() {
+    return batchCommand.get();
+  }
+
+  private static void batch(String file, String jobsOption, ToIntFunction<String[]> runner) {
+    int jobs = NumberUtils.toInt(jobsOption, (jobsOption == null) ? DEFAULT_JOBS : 0);
+    if (jobs <= 0) {
+      CommandUtils.printErrorAndExit("Invalid jobs value; must be a positive integer");
+    }
+    if (running.getAndIncrement() > 0) {
+      running.decrementAndGet();
+      CommandUtils.printErrorAndExit("A batch cannot be run from within a batch");
+    }
+
+    PrintStream stdout = System.out;
+    PrintStream stderr = System.err;
+    ThreadOutputStream outCapture = new ThreadOutputStream(stdout);
+    ThreadOutputStream errCapture = new ThreadOutputStream(stderr);
+    boolean wasEmbedded = CommandUtils.isEmbedded();
+    ExecutorService pool = Executors.newFixedThreadPool(jobs, BatchCommands::newWorker);
+    List<Result> results = new ArrayList<>();
+    try (InputStream input = openInput(file)) {
+      System.setOut(new PrintStream(outCapture, true));
+      System.setErr(new PrintStream(errCapture, true));
+      CommandUtils.setEmbedded(true);
+
+      BufferedReader reader =
+          new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+      Deque<Future<Result>> pending = new ArrayDeque<>();
+      int lineNumber = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (StringUtils.isBlank(line) || line.trim().startsWith("#")) {
+          continue;
+        }
+        Result lineResult = new Result(lineNumber, line.trim());
+        pending.add(pool.submit(() -> lineResult.run(runner, outCapture, errCapture)));
+        if (pending.size() >= jobs * LOOKAHEAD_PER_JOB) {
+          results.add(writeOutput(pending.remove(), stdout, stderr));
+        }
+      }
+      while (!pending.isEmpty()) {
+        results.add(writeOutput(pending.remove(), stdout, stderr));
+      }
+    } catch (IOException ex) {
+      CommandUtils.printErrorAndExit("Error reading batch file: " + ex.getMessage());
+    } finally {
+      pool.shutdownNow();
+      CommandUtils.setEmbedded(wasEmbedded);
+      System.setOut(stdout);
+      System.setErr(stderr);
+      running.decrementAndGet();
+    }
+
+    printSummary(results);
+    if (results.stream().anyMatch(r -> r.status != 0)) {
+      CommandUtils.exit(1);
+    }
+  }
+
+  // Stdin is not closed with the batch; the shell may still be reading it
+  private static InputStream openInput(String file) throws IOException {
+    if (STDIN.equals(file)) {
+      return new FilterInputStream(System.in) {
+        @Override
+        public void close() {}
+      };
+    }
+    return new FileInputStream(file);
+  }
+
+  // Wait for the oldest command and write its output
+  private static Result writeOutput(Future<Result> future, PrintStream stdout, PrintStream stderr) {
+    Result result;
+    try {
+      result = future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for a batch command", ex);
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("Batch command failed", ex.getCause());
+    }
+    result.writeTo(stdout, stderr);
+    return result;
+  }
+
+  private static void printSummary(List<Result> results) {
+    long failed = results.stream().filter(r -> r.status != 0).count();
+    System.err.printf("%nBatch: %d commands, %d failed%n", results.size(), failed);
+    System.err.printf("%6s %6s  %s%n", "line", "status", "command");
+    for (Result result : results) {
+      System.err.printf("%6d %6d  %s%n", result.lineNumber, result.status, result.line);
+    }
+  }
+
+  private static Thread newWorker(Runnable runnable) {
+    Thread thread = new Thread(runnable, "batch-worker-" + workerCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  // One line of the batch, with the output its command produced
+  private static final class Result {
+    private final int lineNumber;
+    private final String line;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private int status;
+
+    Result(int lineNumber, String line) {
+      this.lineNumber = lineNumber;
+      this.line = line;
+    }
+
+    Result run(
+        ToIntFunction<String[]> runner,
+        ThreadOutputStream outCapture,
+        ThreadOutputStream errCapture) {
+      outCapture.capture(out);
+      errCapture.capture(err);
+      batchCommand.set(true);
+      try {
+        List<String> words = ShellCommands.splitLine(line);
+        status = runner.applyAsInt(words.toArray(new String[0]));
+      } catch (ExitException ex) {
+        status = ex.getStatus();
+      } catch (IllegalArgumentException ex) {
+        System.err.println(ex.getMessage());
+        status = 1;
+      } finally {
+        batchCommand.remove();
+        System.out.flush();
+        System.err.flush();
+        outCapture.release();
+        errCapture.release();
+      }
+      return this;
+    }
+
+    void writeTo(PrintStream stdout, PrintStream stderr) {
+      stdout.write(out.toByteArray(), 0, out.size());
+      stdout.flush();
+      stderr.write(err.toByteArray(), 0, err.size());
+      stderr.flush();
+    }
+  }
+}
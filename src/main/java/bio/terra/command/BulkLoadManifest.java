@@ -0,0 +1,232 @@
+package bio.terra.command;
+
+import bio.terra.datarepo.model.BulkLoadFileModel;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.Storage;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * BulkLoadManifest reads the list of files for a bulk file load. The manifest is read lazily, one
+ * record at a time, so very large manifests are not held in memory. Three forms are supported:
+ *
+ * <ul>
+ *   <li>tsv: one file per line: source gspath, target path, mime type, description. Only the
+ *       source is required; trailing columns may be left off. Blank lines and lines starting with
+ *       '#' are skipped.
+ *   <li>json: JSON lines; one BulkLoadFileModel object per line, using the field names sourcePath,
+ *       targetPath, mimeType and description.
+ *   <li>a gs:// prefix: every object under the prefix is loaded. Objects whose names end in '/'
+ *       are folder placeholders and are skipped.
+ * </ul>
+ *
+ * <p>When no target path is given, it is derived from the source path the same way as the single
+ * file load: the path of the object within its bucket.
+ */
+public final class BulkLoadManifest implements Iterator<BulkLoadFileModel>, Closeable {
+  public static final String FORMAT_TSV = "tsv";
+  public static final String FORMAT_JSON = "json";
+
+  private static final String GS_SCHEME = "gs";
+  private static final ObjectMapper objectMapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private final BufferedReader reader; // null for a gs listing
+  private final Iterator<Blob> blobs; // null for a file manifest
+  private final boolean json;
+  private Set<String> skipTargets = Collections.emptySet();
+  private BulkLoadFileModel nextFile;
+  private int lineNumber;
+  private int skippedCount;
+
+  private BulkLoadManifest(BufferedReader reader, boolean json) {
+    this.reader = reader;
+    this.json = json;
+    this.blobs = null;
+  }
+
+  private BulkLoadManifest(Iterator<Blob> blobs) {
+    this.reader = null;
+    this.json = false;
+    this.blobs = blobs;
+  }
+
+  /**
+   * Open a manifest.
+   *
+   * @param manifest local file path or gs:// prefix
+   * @param format tsv or json; if null, json is used for files ending in .json or .jsonl and tsv
+   *     for anything else. Ignored for a gs:// prefix.
+   * @param storage storage client for listing a gs:// prefix; may be null for a local manifest
+   * @return the opened manifest
+   */
+  public static BulkLoadManifest open(String manifest, String format, Storage storage) {
+    if (StringUtils.startsWith(manifest, GS_SCHEME + "://")) {
+      URI prefixUri = URI.create(manifest);
+      String bucket = prefixUri.getAuthority();
+      String prefix = StringUtils.removeStart(prefixUri.getPath(), "/");
+      Iterable<Blob> listing =
+          storage.list(bucket, Storage.BlobListOption.prefix(prefix)).iterateAll();
+      return new BulkLoadManifest(listing.iterator());
+    }
+
+    boolean json;
+    if (format == null) {
+      json = StringUtils.endsWithAny(manifest, ".json", ".jsonl");
+    } else if (StringUtils.equalsIgnoreCase(format, FORMAT_JSON)) {
+      json = true;
+    } else if (StringUtils.equalsIgnoreCase(format, FORMAT_TSV)) {
+      json = false;
+    } else {
+      throw new IllegalArgumentException(
+          "Invalid manifest format; only tsv and json are supported");
+    }
+
+    try {
+      return new BulkLoadManifest(
+          Files.newBufferedReader(Paths.get(manifest), StandardCharsets.UTF_8), json);
+    } catch (IOException ex) {
+      throw new IllegalArgumentException("Unable to read manifest " + manifest, ex);
+    }
+  }
+
+  /**
+   * Derive the target path of a file from its gspath: the path within the bucket, URL decoded.
+   *
+   * @param gspath source path, gs://bucket/path
+   * @return target path in the dataset
+   */
+  public static String deriveTargetPath(String gspath) {
+    String[] pathParts = StringUtils.split(gspath, '/');
+    if (pathParts.length < 3) {
+      throw new IllegalArgumentException("Invalid GS URI: " + gspath);
+    }
+    String encodedPath = '/' + StringUtils.join(pathParts, '/', 2, pathParts.length);
+    try {
+      return URLDecoder.decode(encodedPath, "UTF-8");
+    } catch (UnsupportedEncodingException ex) {
+      throw new IllegalArgumentException("Error decoding gspath into target URI: " + gspath, ex);
+    }
+  }
+
+  /**
+   * Leave out files that are already loaded, for resuming a load.
+   *
+   * @param skipTargets target paths to leave out
+   * @return this manifest
+   */
+  public BulkLoadManifest skipTargets(Set<String> skipTargets) {
+    this.skipTargets = skipTargets;
+    return this;
+  }
+
+  public int getSkippedCount() {
+    return skippedCount;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (nextFile == null) {
+      BulkLoadFileModel file = (blobs == null) ? readRecord() : readBlob();
+      if (file == null) {
+        return false;
+      }
+      if (skipTargets.contains(file.getTargetPath())) {
+        skippedCount++;
+      } else {
+        nextFile = file;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public BulkLoadFileModel next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    BulkLoadFileModel file = nextFile;
+    nextFile = null;
+    return file;
+  }
+
+  @Override
+  public void close() {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (IOException ex) {
+        // Nothing useful to do; we are done with the manifest
+      }
+    }
+  }
+
+  private BulkLoadFileModel readBlob() {
+    while (blobs.hasNext()) {
+      Blob blob = blobs.next();
+      if (!StringUtils.endsWith(blob.getName(), "/")) {
+        return complete(
+            new BulkLoadFileModel()
+                .sourcePath(GS_SCHEME + "://" + blob.getBucket() + "/" + blob.getName())
+                .mimeType(blob.getContentType()));
+      }
+    }
+    return null;
+  }
+
+  private BulkLoadFileModel readRecord() {
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (StringUtils.isBlank(line) || StringUtils.startsWith(line, "#")) {
+          continue;
+        }
+        return complete(json ? parseJson(line) : parseTsv(line));
+      }
+      return null;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Error reading manifest at line " + lineNumber, ex);
+    }
+  }
+
+  private BulkLoadFileModel parseJson(String line) throws IOException {
+    return objectMapper.readValue(line, BulkLoadFileModel.class);
+  }
+
+  private BulkLoadFileModel parseTsv(String line) {
+    String[] fields = line.split("\t", -1);
+    return new BulkLoadFileModel()
+        .sourcePath(StringUtils.trimToNull(fields[0]))
+        .targetPath(fields.length > 1 ? StringUtils.trimToNull(fields[1]) : null)
+        .mimeType(fields.length > 2 ? fields[2] : null)
+        .description(fields.length > 3 ? fields[3] : null);
+  }
+
+  // Fill in the defaults for a record
+  private BulkLoadFileModel complete(BulkLoadFileModel file) {
+    if (file.getSourcePath() == null) {
+      throw new IllegalArgumentException("Manifest line " + lineNumber + " has no source path");
+    }
+    if (file.getTargetPath() == null) {
+      file.targetPath(deriveTargetPath(file.getSourcePath()));
+    }
+    return file.mimeType(StringUtils.defaultString(file.getMimeType()))
+        .description(StringUtils.defaultString(file.getDescription()));
+  }
+}
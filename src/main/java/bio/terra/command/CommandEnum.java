@@ -1,5 +1,7 @@
 package bio.terra.command;
 
+import java.util.EnumSet;
+
 // Enumeration of commands with their command ids.
 public enum CommandEnum {
   COMMAND_DATASET_CREATE(0),
@@ -12,11 +14,13 @@ public enum CommandEnum {
   COMMAND_DATASET_POLICY_REMOVE(7),
   COMMAND_DATASET_TABLE(8),
   COMMAND_DATASET_FILE_SHOW(9),
+  COMMAND_DATASET_FILE_BULK(10),
 
   COMMAND_DR_LIST(20),
   COMMAND_DR_STREAM(21),
   COMMAND_DR_TREE(22),
   COMMAND_DR_DESCRIBE(23),
+  COMMAND_DR_GET(24),
 
   COMMAND_SESSION_SHOW(40),
   COMMAND_SESSION_SET(41),
@@ -40,10 +44,38 @@ public enum CommandEnum {
   COMMAND_AUTH_LOGIN(100),
   COMMAND_AUTH_SA(101),
 
+  COMMAND_DAEMON_START(120),
+  COMMAND_DAEMON_STOP(121),
+  COMMAND_DAEMON_STATUS(122),
+
+  COMMAND_SHELL(140),
+  COMMAND_BATCH(141),
+
   COMMAND_HELP(1000),
 
   COMMAND_ENUM_END(10000);
 
+  // Commands that only read from the data repo. Lookups the shell remembers stay good across them.
+  private static final EnumSet<CommandEnum> READ_ONLY_COMMANDS =
+      EnumSet.of(
+          COMMAND_DATASET_SHOW,
+          COMMAND_DATASET_FILE_SHOW,
+          COMMAND_DATASET_POLICY_SHOW,
+          COMMAND_DR_LIST,
+          COMMAND_DR_STREAM,
+          COMMAND_DR_TREE,
+          COMMAND_DR_DESCRIBE,
+          COMMAND_DR_GET,
+          COMMAND_SESSION_SHOW,
+          COMMAND_SESSION_CD,
+          COMMAND_SESSION_PWD,
+          COMMAND_PROFILE_SHOW,
+          COMMAND_PROFILE_POLICY_SHOW,
+          COMMAND_SNAPSHOT_SHOW,
+          COMMAND_SNAPSHOT_POLICY_SHOW,
+          COMMAND_DAEMON_STATUS,
+          COMMAND_HELP);
+
   private int commandId;
 
   CommandEnum(int commandId) {
@@ -62,4 +94,8 @@ public enum CommandEnum {
   public int getCommandId() {
     return commandId;
   }
+
+  public boolean isReadOnly() {
+    return READ_ONLY_COMMANDS.contains(this);
+  }
 }
@@ -0,0 +1,32 @@
+package bio.terra.command;
+
+import bio.terra.parser.ParsedResult;
+import bio.terra.parser.Syntax;
+import java.util.List;
+
+/**
+ * A CommandModule is one group of jadecli commands, such as the dataset commands. Modules are
+ * registered in META-INF/services/bio.terra.command.CommandModule and found by the {@link
+ * CommandRunner}. A module is cheap to create: the class that defines and runs its commands, and
+ * everything that class uses, is only loaded once the module's syntax is needed. For most command
+ * lines that is only the module named by the first word.
+ */
+public interface CommandModule {
+  /**
+   * @return the words a command line for this module can start with, including the alternate
+   *     names of its commands
+   */
+  List<String> getCommandWords();
+
+  Syntax getSyntax();
+
+  /**
+   * Dispatch a command.
+   *
+   * @param command command to run
+   * @param result parsed command line
+   * @param runner the runner dispatching the command, for commands that run other commands
+   * @return true if the command was handled
+   */
+  boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner);
+}
@@ -0,0 +1,188 @@
+package bio.terra.command;
+
+import bio.terra.parser.ParsedResult;
+import bio.terra.parser.Syntax;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The jadecli command modules. Each one only names its commands class, so creating all of them to
+ * find the one a command line needs loads none of the commands classes.
+ */
+public final class CommandModules {
+
+  private CommandModules() {}
+
+  public static final class Auth implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Collections.singletonList("auth");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return AuthCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return AuthCommands.dispatchCommand(command, result);
+    }
+  }
+
+  public static final class Batch implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Collections.singletonList("batch");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return BatchCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return BatchCommands.dispatchCommand(command, result, runner::run);
+    }
+  }
+
+  public static final class Daemon implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Collections.singletonList("daemon");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return DaemonCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return DaemonCommands.dispatchCommand(command, result, runner::run);
+    }
+  }
+
+  public static final class Dataset implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Collections.singletonList("dataset");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return DatasetCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return DatasetCommands.dispatchCommand(command, result);
+    }
+  }
+
+  public static final class DR implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Arrays.asList("dr", "ls", "tree", "describe", "cat");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return DRCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return DRCommands.dispatchCommand(command, result);
+    }
+  }
+
+  public static final class Help implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Collections.singletonList("help");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return HelpCommands.getSyntax();
+    }
+
+    // Help describes every command, so it is the one command that needs all of the modules
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return command == CommandEnum.COMMAND_HELP
+          && HelpCommands.dispatchCommand(command, result, runner.getFullParser());
+    }
+  }
+
+  public static final class Profile implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Collections.singletonList("profile");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return ProfileCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return ProfileCommands.dispatchCommand(command, result);
+    }
+  }
+
+  public static final class Session implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Arrays.asList("session", "cd", "pwd");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return SessionCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return SessionCommands.dispatchCommand(command, result);
+    }
+  }
+
+  public static final class Shell implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Collections.singletonList("shell");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return ShellCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return ShellCommands.dispatchCommand(command, runner::run);
+    }
+  }
+
+  public static final class Snapshot implements CommandModule {
+    @Override
+    public List<String> getCommandWords() {
+      return Collections.singletonList("snapshot");
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return SnapshotCommands.getSyntax();
+    }
+
+    @Override
+    public boolean dispatchCommand(CommandEnum command, ParsedResult result, CommandRunner runner) {
+      return SnapshotCommands.dispatchCommand(command, result);
+    }
+  }
+}
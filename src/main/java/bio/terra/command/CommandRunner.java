@@ -0,0 +1,126 @@
+package bio.terra.command;
+
+import bio.terra.model.ElementCache;
+import bio.terra.parser.ParsedResult;
+import bio.terra.parser.Parser;
+import bio.terra.parser.Syntax;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * CommandRunner parses and runs jadecli command lines. It runs the command line of this process
+ * and each command run by the daemon, the shell and batches.
+ *
+ * <p>A command line is parsed with the syntax of only the modules that its first word names, so a
+ * command loads the classes of its own module and no others. A command line starting with a word
+ * no module knows is parsed with the full syntax, so the parse error is the same as ever.
+ */
+public final class CommandRunner {
+  // Parser cache key for the full syntax
+  private static final String ALL_MODULES = "";
+
+  private final List<CommandModule> modules = new ArrayList<>();
+  private final Map<String, Parser> parsers = new HashMap<>();
+
+  public CommandRunner() {
+    // Modules are listed in the order their commands appear in the help
+    for (CommandModule module :
+        ServiceLoader.load(CommandModule.class, CommandModule.class.getClassLoader())) {
+      modules.add(module);
+    }
+  }
+
+  /**
+   * Parse and run one command.
+   *
+   * @param args command line
+   * @return exit status
+   */
+  public int run(String[] args) {
+    try {
+      List<CommandModule> selected = selectModules(args);
+      ParsedResult result = getParser(args, selected).parse(args);
+      if (result == null) {
+        // If parser returns no result, then there was a parse error. The parser has written
+        // the proper message to stderr.
+        return 1;
+      }
+      CommandEnum command = CommandEnum.commandIdToEnum(result.getCommandId());
+      // The shell remembers lookups; anything that may change the data repo makes them stale
+      if (!command.isReadOnly()) {
+        ElementCache.clear();
+      }
+
+      boolean commandHandled = false;
+      for (CommandModule module : selected) {
+        if (module.dispatchCommand(command, result, this)) {
+          commandHandled = true;
+          break;
+        }
+      }
+      if (!commandHandled) {
+        throw new IllegalArgumentException("Unhandled command! Yikes!! We shouldn't be here.");
+      }
+      return 0;
+
+    } catch (Exception ex) {
+      ExitException exit = findExit(ex);
+      if (exit != null) {
+        return exit.getStatus();
+      }
+      System.err.println(ex.getMessage() + "\nTry the help command");
+      return 1;
+    }
+  }
+
+  /**
+   * Get a parser for every jadecli command. Loads all of the command modules.
+   *
+   * @return the parser
+   */
+  public Parser getFullParser() {
+    return getParser(ALL_MODULES, modules);
+  }
+
+  private List<CommandModule> selectModules(String[] args) {
+    List<CommandModule> selected = new ArrayList<>();
+    if (args.length > 0) {
+      for (CommandModule module : modules) {
+        if (module.getCommandWords().contains(args[0])) {
+          selected.add(module);
+        }
+      }
+    }
+    return selected.isEmpty() ? modules : selected;
+  }
+
+  private Parser getParser(String[] args, List<CommandModule> selected) {
+    return getParser((selected == modules) ? ALL_MODULES : args[0], selected);
+  }
+
+  // Parsers are kept for the commands a shell, batch or daemon runs again
+  private synchronized Parser getParser(String key, List<CommandModule> selected) {
+    return parsers.computeIfAbsent(
+        key,
+        k -> {
+          Syntax syntax = new Syntax();
+          for (CommandModule module : selected) {
+            syntax.mergeSyntax(module.getSyntax());
+          }
+          return new Parser(syntax);
+        });
+  }
+
+  // An embedded exit may reach us wrapped, for example by a future
+  private static ExitException findExit(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ExitException) {
+        return (ExitException) cause;
+      }
+    }
+    return null;
+  }
+}
@@ -2,21 +2,23 @@ package bio.terra.command;
 
 import bio.terra.context.Context;
 import bio.terra.context.ContextEnum;
+import bio.terra.context.NameCache;
 import bio.terra.datarepo.model.BillingProfileModel;
 import bio.terra.datarepo.model.DatasetSummaryModel;
-import bio.terra.datarepo.model.EnumerateBillingProfileModel;
-import bio.terra.datarepo.model.EnumerateDatasetModel;
-import bio.terra.datarepo.model.EnumerateSnapshotModel;
 import bio.terra.datarepo.model.PolicyModel;
 import bio.terra.datarepo.model.PolicyResponse;
 import bio.terra.datarepo.model.SnapshotSummaryModel;
+import bio.terra.formatting.JsonStreamWriter;
+import bio.terra.model.ElementCache;
 import bio.terra.parser.Option;
+import bio.terra.tdrwrapper.EnumeratePager;
 import bio.terra.tdrwrapper.exception.DataRepoClientException;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import bio.terra.tdrwrapper.exception.DataRepoNotFoundClientException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.StringUtils;
 
 public final class CommandUtils {
@@ -24,8 +26,6 @@ public final class CommandUtils {
   public static final String SLASH = "/";
   public static final String AT = "@";
 
-  private static final ObjectMapper objectMapper = new ObjectMapper();
-
   // Common format option
   public static final Option formatOption =
       new Option()
@@ -34,13 +34,45 @@ public final class CommandUtils {
           .optional(true)
           .help("Output format; 'text' is the default; 'json' is supported");
 
+  // Commands normally end the process when they fail. When they run embedded in a long-lived
+  // process, such as the daemon, that would end it for every later command, so exits are thrown as
+  // ExitExceptions for the command runner to catch. Standard output may be redirected then.
+  private static volatile boolean embedded;
+
   private CommandUtils() {}
 
+  public static boolean isEmbedded() {
+    return embedded;
+  }
+
+  public static void setEmbedded(boolean embedded) {
+    CommandUtils.embedded = embedded;
+  }
+
+  /**
+   * End the command with an exit status: the process exits, or when embedded, an ExitException is
+   * thrown.
+   *
+   * @param status exit status
+   */
+  public static void exit(int status) {
+    if (embedded) {
+      throw new ExitException(status);
+    }
+    System.exit(status);
+  }
+
   public static ObjectMapper getObjectMapper() {
-    return objectMapper;
+    return ObjectMapperHolder.objectMapper;
+  }
+
+  // Created on first use, so commands that print no JSON, such as help, do not load Jackson
+  private static final class ObjectMapperHolder {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
   }
 
   public static void printError(DataRepoClientException ex) {
+    invalidateCachedNames(ex);
     System.out.printf("[%d] %s%n", ex.getStatusCode(), ex.getMessage());
     if (ex.getErrorDetails() != null) {
       for (String detail : ex.getErrorDetails()) {
@@ -51,63 +83,129 @@ public final class CommandUtils {
 
   public static void printErrorAndExit(String message) {
     System.err.println(message);
-    System.exit(1);
+    exit(1);
   }
 
-  public static DatasetSummaryModel findDatasetByName(String datasetName) {
-    try {
-      EnumerateDatasetModel enumerateDataset =
-          DRApi.get().enumerateDatasets(0, 100000, null, null, datasetName);
+  /**
+   * A 404 may mean that a name we resolved from the name cache now refers to a deleted object.
+   * Forget the cached names used by this process so the next invocation looks them up again, and
+   * any elements the shell is holding.
+   *
+   * @param ex exception from a data repo call
+   */
+  public static void invalidateCachedNames(DataRepoClientException ex) {
+    if (ex instanceof DataRepoNotFoundClientException) {
+      NameCache.getInstance().invalidateServed();
+      ElementCache.clear();
+    }
+  }
 
-      List<DatasetSummaryModel> studies = enumerateDataset.getItems();
-      for (DatasetSummaryModel summary : studies) {
-        if (StringUtils.equals(summary.getName(), datasetName)) {
-          return summary;
-        }
-      }
+  public static DatasetSummaryModel findDatasetByName(String datasetName) {
+    DatasetSummaryModel summary = lookupDatasetByName(datasetName);
+    if (summary == null) {
       CommandUtils.printErrorAndExit("Dataset not found: " + datasetName);
-      return null;
-
-    } catch (DataRepoClientException ex) {
-      throw new IllegalArgumentException("Error processing find dataset by name");
     }
+    return summary;
   }
 
   public static SnapshotSummaryModel findSnapshotByName(String snapshotName) {
-    try {
-      EnumerateSnapshotModel enumerateSnapshot =
-          DRApi.get().enumerateSnapshots(0, 100000, null, null, snapshotName);
-
-      List<SnapshotSummaryModel> studies = enumerateSnapshot.getItems();
-      for (SnapshotSummaryModel summary : studies) {
-        if (StringUtils.equals(summary.getName(), snapshotName)) {
-          return summary;
-        }
-      }
+    SnapshotSummaryModel summary = lookupSnapshotByName(snapshotName);
+    if (summary == null) {
       CommandUtils.printErrorAndExit("Snapshot not found: " + snapshotName);
-      return null;
+    }
+    return summary;
+  }
+
+  public static BillingProfileModel findProfileByName(String profileName) {
+    BillingProfileModel profile = lookupProfileByName(profileName);
+    if (profile == null) {
+      CommandUtils.printErrorAndExit("Profile not found: " + profileName);
+    }
+    return profile;
+  }
+
+  /**
+   * Find a dataset by name, consulting the name cache first.
+   *
+   * @param datasetName name of the dataset
+   * @return the dataset summary; null if there is no dataset with that name
+   */
+  public static DatasetSummaryModel lookupDatasetByName(String datasetName) {
+    NameCache nameCache = NameCache.getInstance();
+    DatasetSummaryModel summary =
+        nameCache.get(NameCache.ObjectType.DATASET, datasetName, DatasetSummaryModel.class);
+    if (summary != null) {
+      return summary;
+    }
 
+    try {
+      summary =
+          DRApi.get()
+              .pageDatasets(datasetName, EnumeratePager.DEFAULT_PAGE_SIZE)
+              .findFirst("name", datasetName);
     } catch (DataRepoClientException ex) {
-      throw new IllegalArgumentException("Error processing find snapshot by name");
+      throw new IllegalArgumentException("Error processing find dataset by name");
+    }
+    if (summary != null) {
+      nameCache.put(NameCache.ObjectType.DATASET, datasetName, summary);
     }
+    return summary;
   }
 
-  public static BillingProfileModel findProfileByName(String profileName) {
+  /**
+   * Find a snapshot by name, consulting the name cache first.
+   *
+   * @param snapshotName name of the snapshot
+   * @return the snapshot summary; null if there is no snapshot with that name
+   */
+  public static SnapshotSummaryModel lookupSnapshotByName(String snapshotName) {
+    NameCache nameCache = NameCache.getInstance();
+    SnapshotSummaryModel summary =
+        nameCache.get(NameCache.ObjectType.SNAPSHOT, snapshotName, SnapshotSummaryModel.class);
+    if (summary != null) {
+      return summary;
+    }
+
     try {
-      EnumerateBillingProfileModel enumerateProfiles = DRApi.get().enumerateProfiles(0, 100000);
+      summary =
+          DRApi.get()
+              .pageSnapshots(snapshotName, EnumeratePager.DEFAULT_PAGE_SIZE)
+              .findFirst("name", snapshotName);
+    } catch (DataRepoClientException ex) {
+      throw new IllegalArgumentException("Error processing find snapshot by name");
+    }
+    if (summary != null) {
+      nameCache.put(NameCache.ObjectType.SNAPSHOT, snapshotName, summary);
+    }
+    return summary;
+  }
 
-      List<BillingProfileModel> profiles = enumerateProfiles.getItems();
-      for (BillingProfileModel profile : profiles) {
-        if (StringUtils.equals(profile.getProfileName(), profileName)) {
-          return profile;
-        }
-      }
-      CommandUtils.printErrorAndExit("Profile not found: " + profileName);
-      return null;
+  /**
+   * Find a billing profile by name, consulting the name cache first.
+   *
+   * @param profileName name of the profile
+   * @return the profile; null if there is no profile with that name
+   */
+  public static BillingProfileModel lookupProfileByName(String profileName) {
+    NameCache nameCache = NameCache.getInstance();
+    BillingProfileModel profile =
+        nameCache.get(NameCache.ObjectType.PROFILE, profileName, BillingProfileModel.class);
+    if (profile != null) {
+      return profile;
+    }
 
+    try {
+      profile =
+          DRApi.get()
+              .pageProfiles(EnumeratePager.DEFAULT_PAGE_SIZE)
+              .findFirst("profileName", profileName);
     } catch (DataRepoClientException ex) {
-      throw new IllegalArgumentException("Error processing find dataset by name");
+      throw new IllegalArgumentException("Error processing find profile by name");
+    }
+    if (profile != null) {
+      nameCache.put(NameCache.ObjectType.PROFILE, profileName, profile);
     }
+    return profile;
   }
 
   public static String getObjectName(String path) {
@@ -193,16 +291,27 @@ public final class CommandUtils {
   }
 
   /**
-   * Print the object to stdout using the Jackson object mapper default pretty printer. Prints an
-   * error message to stdout and terminates the process if it encounters a JSON exception.
+   * Print the object to stdout using the Jackson default pretty printer. The object is serialized
+   * straight to the output rather than into a string first. Prints an error message to stdout and
+   * terminates the process if it encounters a JSON exception.
    *
    * @param val the object to print
    */
   public static void outputPrettyJson(Object val) {
-    try {
-      String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(val);
-      System.out.println(json);
-    } catch (JsonProcessingException ex) {
+    outputJson(writer -> writer.writeObject(val));
+  }
+
+  /**
+   * Stream JSON to stdout. The output is written as the action generates it, so large lists and
+   * trees can be printed as they are enumerated. Prints an error message and terminates the process
+   * if the JSON cannot be written.
+   *
+   * @param action code that writes to the stream writer
+   */
+  public static void outputJson(Consumer<JsonStreamWriter> action) {
+    try (JsonStreamWriter writer = JsonStreamWriter.toStdout()) {
+      action.accept(writer);
+    } catch (UncheckedIOException ex) {
       CommandUtils.printErrorAndExit("Conversion to JSON string failed: " + ex.getMessage());
     }
   }
@@ -0,0 +1,180 @@
+package bio.terra.command;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli), the checksum GCS and the data repo keep for every file. Java 8 has no
+ * built-in implementation, so this is the usual table driven one, processing eight bytes per step
+ * ("slicing by 8"). {@link #combine} joins the checksums of adjacent ranges, so ranges can be
+ * checksummed in parallel.
+ */
+public final class Crc32c implements Checksum {
+  private static final int POLYNOMIAL = 0x82F63B78; // reversed Castagnoli polynomial
+  private static final int[][] TABLES = new int[8][256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i;
+      for (int bit = 0; bit < 8; bit++) {
+        crc = ((crc & 1) != 0) ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+      }
+      TABLES[0][i] = crc;
+    }
+    for (int i = 0; i < 256; i++) {
+      for (int t = 1; t < 8; t++) {
+        TABLES[t][i] = (TABLES[t - 1][i] >>> 8) ^ TABLES[0][TABLES[t - 1][i] & 0xff];
+      }
+    }
+  }
+
+  private int crc = 0xffffffff;
+
+  @Override
+  public void update(int b) {
+    crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xff];
+  }
+
+  @Override
+  public void update(byte[] bytes, int offset, int length) {
+    int index = offset;
+    int end = offset + length;
+    while (end - index >= 8) {
+      int low =
+          (bytes[index] & 0xff)
+              | (bytes[index + 1] & 0xff) << 8
+              | (bytes[index + 2] & 0xff) << 16
+              | (bytes[index + 3] & 0xff) << 24;
+      int high =
+          (bytes[index + 4] & 0xff)
+              | (bytes[index + 5] & 0xff) << 8
+              | (bytes[index + 6] & 0xff) << 16
+              | (bytes[index + 7] & 0xff) << 24;
+      step(low, high);
+      index += 8;
+    }
+    while (index < end) {
+      update(bytes[index++]);
+    }
+  }
+
+  /**
+   * Add the remaining bytes of a buffer, heap or direct. The buffer position is moved to its limit.
+   *
+   * @param buffer bytes to add
+   */
+  public void update(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    } else {
+      ByteBuffer littleEndian = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      while (littleEndian.remaining() >= 8) {
+        long value = littleEndian.getLong();
+        step((int) value, (int) (value >>> 32));
+      }
+      while (littleEndian.hasRemaining()) {
+        update(littleEndian.get());
+      }
+    }
+    buffer.position(buffer.limit());
+  }
+
+  @Override
+  public long getValue() {
+    return ~crc & 0xffffffffL;
+  }
+
+  @Override
+  public void reset() {
+    crc = 0xffffffff;
+  }
+
+  /**
+   * Compute the checksum of two adjacent byte ranges from the checksums of each range. This is the
+   * zlib crc32_combine method: it applies len2 zero bytes to crc1 using powers of the CRC shift
+   * operator, which takes log(len2) matrix squarings rather than a pass over the bytes.
+   *
+   * @param crc1 checksum of the first range
+   * @param crc2 checksum of the second range
+   * @param len2 length of the second range
+   * @return checksum of the two ranges together
+   */
+  public static long combine(long crc1, long crc2, long len2) {
+    if (len2 <= 0) {
+      return crc1;
+    }
+
+    // odd is the operator for one zero bit; even, for two
+    long[] even = new long[32];
+    long[] odd = new long[32];
+    odd[0] = POLYNOMIAL & 0xffffffffL;
+    long row = 1;
+    for (int n = 1; n < 32; n++) {
+      odd[n] = row;
+      row <<= 1;
+    }
+    gf2MatrixSquare(even, odd);
+    gf2MatrixSquare(odd, even);
+
+    // Apply len2 zero bytes to crc1; the first squaring gives the operator for one zero byte
+    long length = len2;
+    long crc = crc1;
+    do {
+      gf2MatrixSquare(even, odd);
+      if ((length & 1) != 0) {
+        crc = gf2MatrixTimes(even, crc);
+      }
+      length >>= 1;
+      if (length == 0) {
+        break;
+      }
+      gf2MatrixSquare(odd, even);
+      if ((length & 1) != 0) {
+        crc = gf2MatrixTimes(odd, crc);
+      }
+      length >>= 1;
+    } while (length != 0);
+    return crc ^ crc2;
+  }
+
+  /**
+   * Format a value the way the data repo reports it: eight lower case hex digits.
+   *
+   * @param value checksum value
+   * @return hex string
+   */
+  public static String toHex(long value) {
+    return String.format("%08x", value);
+  }
+
+  private static long gf2MatrixTimes(long[] matrix, long vector) {
+    long sum = 0;
+    long remaining = vector;
+    for (int i = 0; remaining != 0; i++, remaining >>>= 1) {
+      if ((remaining & 1) != 0) {
+        sum ^= matrix[i];
+      }
+    }
+    return sum;
+  }
+
+  private static void gf2MatrixSquare(long[] square, long[] matrix) {
+    for (int n = 0; n < 32; n++) {
+      square[n] = gf2MatrixTimes(matrix, matrix[n]);
+    }
+  }
+
+  private void step(int low, int high) {
+    int value = crc ^ low;
+    crc =
+        TABLES[7][value & 0xff]
+            ^ TABLES[6][(value >>> 8) & 0xff]
+            ^ TABLES[5][(value >>> 16) & 0xff]
+            ^ TABLES[4][value >>> 24]
+            ^ TABLES[3][high & 0xff]
+            ^ TABLES[2][(high >>> 8) & 0xff]
+            ^ TABLES[1][(high >>> 16) & 0xff]
+            ^ TABLES[0][high >>> 24];
+  }
+}
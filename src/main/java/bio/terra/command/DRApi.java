@@ -1,22 +1,91 @@
 package bio.terra.command;
 
+import bio.terra.context.Context;
+import bio.terra.context.ContextEnum;
 import bio.terra.context.Login;
 import bio.terra.datarepo.api.RepositoryApi;
 import bio.terra.datarepo.api.ResourcesApi;
+import bio.terra.tdrwrapper.AccessTokenFilter;
+import bio.terra.tdrwrapper.DataRepoAsync;
 import bio.terra.tdrwrapper.DataRepoWrap;
+import bio.terra.tdrwrapper.PooledApiClient;
+import bio.terra.tdrwrapper.PollBackoff;
+import org.apache.commons.lang3.math.NumberUtils;
 
-// Singleton container for pointers to the DR APIs
+// Singleton container for pointers to the DR APIs. The api client is set up and the user logged in
+// on the first get(); later calls just return the wrapper. Tokens are not copied into the api
+// client: a request filter asks Login for the current token on each request, so refreshes need no
+// reconfiguration. All requests share one pool of keep-alive connections.
 public final class DRApi {
-  private static DataRepoWrap dataRepoWrap;
+  private static final String APPLICATION_NAME = "jadecli";
+
+  private static volatile DataRepoWrap dataRepoWrap;
+  private static PooledApiClient apiClient;
+  private static DataRepoAsync dataRepoAsync;
 
   private DRApi() {}
 
   public static DataRepoWrap get() {
-    if (dataRepoWrap == null) {
-      dataRepoWrap = new DataRepoWrap(new RepositoryApi(), new ResourcesApi());
+    DataRepoWrap wrap = dataRepoWrap;
+    if (wrap == null) {
+      wrap = initialize();
+    }
+    return wrap;
+  }
+
+  public static synchronized DataRepoAsync getAsync() {
+    if (dataRepoAsync == null) {
+      dataRepoAsync = new DataRepoAsync(get());
     }
+    return dataRepoAsync;
+  }
 
-    Login.requiresLogin();
+  /**
+   * Drop the api client, so the next get() builds a new one. Used when the base path or login
+   * changes within a process. The old wrapper's job watcher and the async pool are shut down, so
+   * their threads do not outlive it.
+   */
+  public static synchronized void reset() {
+    if (dataRepoAsync != null) {
+      dataRepoAsync.shutdown();
+      dataRepoAsync = null;
+    }
+    if (dataRepoWrap != null) {
+      dataRepoWrap.getJobWatcher().shutdown();
+      dataRepoWrap = null;
+    }
+    if (apiClient != null) {
+      apiClient.close();
+      apiClient = null;
+    }
+  }
+
+  private static synchronized DataRepoWrap initialize() {
+    if (dataRepoWrap == null) {
+      Login.requiresLogin();
+
+      apiClient = new PooledApiClient(getMaxConnections());
+      apiClient
+          .setUserAgent(APPLICATION_NAME)
+          .setBasePath(Context.getInstance().getContextItem(ContextEnum.BASE_PATH));
+      apiClient.getHttpClient().register(new AccessTokenFilter(Login::getCurrentAccessToken));
+
+      dataRepoWrap =
+          new DataRepoWrap(
+              new RepositoryApi(apiClient), new ResourcesApi(apiClient), getPollMaxMillis());
+    }
     return dataRepoWrap;
   }
+
+  // Context files written by older versions will not have the poll setting, so fall back to the
+  // default if it is missing or malformed.
+  private static long getPollMaxMillis() {
+    String value = Context.getInstance().getContextItem(ContextEnum.JOB_POLL_MAX_MS);
+    return NumberUtils.toLong(value, PollBackoff.DEFAULT_MAX_MILLIS);
+  }
+
+  private static int getMaxConnections() {
+    String value = Context.getInstance().getContextItem(ContextEnum.HTTP_MAX_CONNECTIONS);
+    return Math.max(1, NumberUtils.toInt(value, PooledApiClient.DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+  }
 }
@@ -1,19 +1,29 @@
 package bio.terra.command;
 
+import bio.terra.context.Context;
+import bio.terra.context.ContextEnum;
 import bio.terra.datarepo.model.FileModel;
 import bio.terra.datarepo.model.FileModelType;
+import bio.terra.formatting.JsonStreamWriter;
+import bio.terra.model.DRCollectionFiles;
 import bio.terra.model.DRElement;
 import bio.terra.model.DRFile;
-import bio.terra.model.DRRoot;
+import bio.terra.model.ElementCache;
+import bio.terra.model.TreeWalker;
 import bio.terra.parser.Argument;
 import bio.terra.parser.Command;
 import bio.terra.parser.Option;
 import bio.terra.parser.ParsedResult;
 import bio.terra.parser.Syntax;
-import java.util.Arrays;
-import java.util.LinkedList;
+import bio.terra.tdrwrapper.exception.DataRepoClientException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
 // object types
 // dir, file, dataset, snapshot, cont(ainer)
@@ -29,6 +39,8 @@ import org.apache.commons.lang3.StringUtils;
 
 public final class DRCommands {
   private static final String LIST_FORMAT = "%s%-8s  %-20s  %s  %s  %s%n";
+  private static final int FULL_TREE_DEPTH = 1000000000;
+  private static final int MAX_CHUNK_MB = RangedDownload.MAX_CHUNK_SIZE >> 20;
 
   private DRCommands() {}
 
@@ -47,6 +59,7 @@ public final class DRCommands {
                         .hasArgument(false)
                         .optional(true)
                         .help("Recurses from the path listing all elements under the path"))
+                .addOption(CommandUtils.formatOption)
                 .addArgument(
                     new Argument()
                         .name("path")
@@ -65,6 +78,7 @@ public final class DRCommands {
                         .hasArgument(true)
                         .optional(true)
                         .help("depth to recurse; if unspecified, the full tree is traversed"))
+                .addOption(CommandUtils.formatOption)
                 .addArgument(
                     new Argument()
                         .name("path")
@@ -93,25 +107,90 @@ public final class DRCommands {
                 .alternateNames(new String[] {"cat"})
                 .commandId(CommandEnum.COMMAND_DR_STREAM.getCommandId())
                 .help("stream an object to standard out")
+                .addOption(
+                    new Option()
+                        .shortName("j")
+                        .longName("jobs")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help("Number of ranges of the object to read at once"))
+                .addOption(
+                    new Option()
+                        .longName("chunk-size")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help("Size of each range in MiB, at most " + MAX_CHUNK_MB))
+                .addOption(
+                    new Option()
+                        .shortName("o")
+                        .longName("output")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help("Write to this local file instead of standard out"))
+                .addOption(
+                    new Option()
+                        .shortName("v")
+                        .longName("verbose")
+                        .hasArgument(false)
+                        .optional(true)
+                        .help("Report the transfer rate on standard error"))
+                .addArgument(
+                    new Argument().name("path").optional(false).help("Path to an object")))
+        .addCommand(
+            new Command()
+                .primaryNames(new String[] {"dr", "get"})
+                .commandId(CommandEnum.COMMAND_DR_GET.getCommandId())
+                .help(
+                    "download a file or a directory tree to a local directory; files that are"
+                        + " already there with matching checksums are skipped")
+                .addOption(
+                    new Option()
+                        .shortName("j")
+                        .longName("jobs")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help(
+                            "Number of files to download at once; defaults to "
+                                + DownloadTree.DEFAULT_JOBS))
+                .addArgument(
+                    new Argument()
+                        .name("path")
+                        .optional(false)
+                        .help("Path to a file, a directory, or the files of a dataset or snapshot"))
                 .addArgument(
-                    new Argument().name("path").optional(false).help("Path to an object")));
+                    new Argument()
+                        .name("localdir")
+                        .optional(false)
+                        .help("Local directory to download into")));
   }
 
   public static boolean dispatchCommand(CommandEnum command, ParsedResult result) {
     switch (command) {
       case COMMAND_DR_LIST:
-        DRCommands.drList(result.getArgument("path"), result.found("recurse"));
+        DRCommands.drList(
+            result.getArgument("path"), result.found("recurse"), result.getArgument("format"));
         break;
       case COMMAND_DR_TREE:
         int depth =
-            (result.found("depth")) ? Integer.parseInt(result.getArgument("depth")) : 1000000000;
-        DRCommands.drTree(result.getArgument("path"), depth);
+            (result.found("depth"))
+                ? Integer.parseInt(result.getArgument("depth"))
+                : FULL_TREE_DEPTH;
+        DRCommands.drTree(result.getArgument("path"), depth, result.getArgument("format"));
         break;
       case COMMAND_DR_DESCRIBE:
         DRCommands.drDescribe(result.getArgument("path"), result.getArgument("format"));
         break;
       case COMMAND_DR_STREAM:
-        DRCommands.drStream(result.getArgument("path"));
+        DRCommands.drStream(
+            result.getArgument("path"),
+            result.getArgument("jobs"),
+            result.getArgument("chunk-size"),
+            result.getArgument("output"),
+            result.found("verbose"));
+        break;
+      case COMMAND_DR_GET:
+        DRCommands.drGet(
+            result.getArgument("path"), result.getArgument("localdir"), result.getArgument("jobs"));
         break;
       default:
         return false;
@@ -126,44 +205,200 @@ public final class DRCommands {
     element.describe(format);
   }
 
-  private static void drList(String inPath, boolean recurse) {
+  private static void drList(String inPath, boolean recurse, String format) {
+    boolean json = isJson(format);
     String path = CommandUtils.makeFullPath(inPath);
 
-    DRElement elementToList = lookup(path);
+    // A recursive list walks the whole file tree, so ask for it fully expanded up front
+    DRElement elementToList =
+        lookup(path, recurse ? DRFile.FULL_DEPTH : DRFile.DEFAULT_FETCH_DEPTH);
 
     if (recurse) {
-      listRecursive(elementToList, path);
+      if (json) {
+        CommandUtils.outputJson(
+            writer -> listRecursiveJson(elementToList, path, getWalkerConcurrency(), writer));
+      } else {
+        listRecursive(elementToList, path);
+      }
     } else {
-      List<DRElement> elementList = elementToList.enumerate();
-      printElementList(elementList, 0);
+      // Iterate rather than enumerate so a large listing starts printing with the first page
+      Iterator<DRElement> elements = elementToList.iterate();
+      if (json) {
+        CommandUtils.outputJson(writer -> listJson(elements, writer));
+      } else {
+        while (elements.hasNext()) {
+          printElement(elements.next(), 0);
+        }
+      }
     }
   }
 
   private static void listRecursive(DRElement element, String path) {
-    System.out.println(path + ":");
-    List<DRElement> elementList = element.enumerate();
-    printElementList(elementList, 0);
-    System.out.println("");
-
-    for (DRElement enumElement : elementList) {
-      if (!enumElement.isLeaf()) {
-        listRecursive(enumElement, path + CommandUtils.SLASH + enumElement.getObjectName());
-      }
+    // Files are leaves, so the walker would not enumerate them; list the file itself
+    int maxDepth = element.isLeaf() ? 0 : Integer.MAX_VALUE;
+    new TreeWalker(getWalkerConcurrency())
+        .walk(
+            element,
+            path,
+            maxDepth,
+            (walkElement, walkPath, depth, children) -> {
+              if (children == null && depth > 0) {
+                return;
+              }
+              System.out.println(walkPath + ":");
+              printElementList(children == null ? walkElement.enumerate() : children, 0);
+              System.out.println("");
+            });
+  }
+
+  // Streams the elements as an array of objects
+  static void listJson(Iterator<DRElement> elements, JsonStreamWriter writer) {
+    writer.write(gen -> writeElementArray(gen, elements));
+  }
+
+  // Streams an array with one object per listed directory:
+  //   [ {"path": "/a", "contents": [ elements ]}, ... ]
+  // Each directory is written as soon as the walk reaches it.
+  static void listRecursiveJson(
+      DRElement element, String path, int concurrency, JsonStreamWriter writer) {
+    int maxDepth = element.isLeaf() ? 0 : Integer.MAX_VALUE;
+    writer.write(JsonGenerator::writeStartArray);
+    new TreeWalker(concurrency)
+        .walk(
+            element,
+            path,
+            maxDepth,
+            (walkElement, walkPath, depth, children) -> {
+              if (children == null && depth > 0) {
+                return;
+              }
+              List<DRElement> contents = (children == null) ? walkElement.enumerate() : children;
+              writer.write(
+                  gen -> {
+                    gen.writeStartObject();
+                    gen.writeStringField("path", walkPath);
+                    gen.writeFieldName("contents");
+                    writeElementArray(gen, contents);
+                    gen.writeEndObject();
+                  });
+            });
+    writer.write(JsonGenerator::writeEndArray);
+  }
+
+  private static void drTree(String inPath, int maxDepth, String format) {
+    boolean json = isJson(format);
+    // The tree never goes more than maxDepth levels below the path, so that is the deepest
+    // useful file lookup
+    int fetchDepth = (maxDepth >= FULL_TREE_DEPTH) ? DRFile.FULL_DEPTH : Math.max(1, maxDepth);
+    DRElement elementToList = lookup(inPath, fetchDepth);
+    if (json) {
+      CommandUtils.outputJson(
+          writer -> treeRecursiveJson(elementToList, maxDepth, getWalkerConcurrency(), writer));
+    } else {
+      treeRecursive(elementToList, maxDepth);
     }
   }
 
-  private static void drTree(String inPath, int maxDepth) {
-    DRElement elementToList = lookup(inPath);
-    treeRecursive(elementToList, maxDepth, 0);
+  private static void treeRecursive(DRElement element, int maxDepth) {
+    new TreeWalker(getWalkerConcurrency())
+        .walk(
+            element,
+            StringUtils.EMPTY,
+            maxDepth,
+            (walkElement, walkPath, depth, children) -> treePrint(walkElement, depth));
   }
 
-  private static void treeRecursive(DRElement element, int maxDepth, int currentDepth) {
-    treePrint(element, currentDepth);
-    if (currentDepth < maxDepth && !element.isLeaf()) {
-      List<DRElement> elementList = element.enumerate();
-      for (DRElement enumElement : elementList) {
-        treeRecursive(enumElement, maxDepth, currentDepth + 1);
-      }
+  // Streams the tree as nested objects; expanded elements have a "children" array. The walk is
+  // pre-order, so an element's parent is always the innermost open object at depth - 1. We only
+  // keep the count of open objects, not the elements.
+  static void treeRecursiveJson(
+      DRElement element, int maxDepth, int concurrency, JsonStreamWriter writer) {
+    int[] openObjects = new int[1];
+    new TreeWalker(concurrency)
+        .walk(
+            element,
+            StringUtils.EMPTY,
+            maxDepth,
+            (walkElement, walkPath, depth, children) ->
+                writer.write(
+                    gen -> {
+                      for (; openObjects[0] > depth; openObjects[0]--) {
+                        gen.writeEndArray();
+                        gen.writeEndObject();
+                      }
+                      gen.writeStartObject();
+                      walkElement.writeJsonFields(gen);
+                      if (children == null) {
+                        gen.writeEndObject();
+                      } else {
+                        gen.writeArrayFieldStart("children");
+                        openObjects[0]++;
+                      }
+                    }));
+    writer.write(
+        gen -> {
+          for (; openObjects[0] > 0; openObjects[0]--) {
+            gen.writeEndArray();
+            gen.writeEndObject();
+          }
+        });
+  }
+
+  private static void writeElementArray(JsonGenerator generator, List<DRElement> elementList)
+      throws IOException {
+    writeElementArray(generator, elementList.iterator());
+  }
+
+  private static void writeElementArray(JsonGenerator generator, Iterator<DRElement> elements)
+      throws IOException {
+    generator.writeStartArray();
+    while (elements.hasNext()) {
+      elements.next().writeJson(generator);
+    }
+    generator.writeEndArray();
+  }
+
+  private static boolean isJson(String format) {
+    return CommandUtils.CLIFormatFlags.lookup(format)
+        == CommandUtils.CLIFormatFlags.CLI_FORMAT_JSON;
+  }
+
+  // Context files written by older versions will not have the setting, so fall back to the
+  // default if it is missing or malformed.
+  private static int getWalkerConcurrency() {
+    String value = Context.getInstance().getContextItem(ContextEnum.WALK_CONCURRENCY);
+    return Math.max(1, NumberUtils.toInt(value, TreeWalker.DEFAULT_CONCURRENCY));
+  }
+
+  // An option value wins over the context setting; both must be positive
+  private static int getDownloadSetting(String option, ContextEnum item, int defaultValue) {
+    String value = (option == null) ? Context.getInstance().getContextItem(item) : option;
+    int setting = NumberUtils.toInt(value, (option == null) ? defaultValue : 0);
+    if (setting <= 0) {
+      CommandUtils.printErrorAndExit(
+          "Invalid " + item.getKey() + " value; must be a positive integer: " + value);
+    }
+    return setting;
+  }
+
+  // Each download holds a direct buffer per pooled chunk. Refuse settings that could exhaust
+  // direct memory rather than quietly changing them.
+  private static void checkDownloadMemory(int downloads, int parallelism, int chunkMb) {
+    if (chunkMb > MAX_CHUNK_MB) {
+      CommandUtils.printErrorAndExit("Chunk size may not be more than " + MAX_CHUNK_MB + " MiB");
+    }
+    long budget = RangedDownload.maxBufferMemory();
+    if (RangedDownload.bufferMemory(parallelism, chunkMb << 20) > budget / downloads) {
+      CommandUtils.printErrorAndExit(
+          String.format(
+              "Downloads may use at most %d MiB of buffers, but %d files x %d threads x 2 x"
+                  + " %d MiB chunks is more; lower the jobs, %s or %s",
+              budget >> 20,
+              downloads,
+              parallelism,
+              chunkMb,
+              ContextEnum.DOWNLOAD_THREADS.getKey(),
+              ContextEnum.DOWNLOAD_CHUNK_MB.getKey()));
     }
   }
 
@@ -191,24 +426,111 @@ public final class DRCommands {
         element.getDescription());
   }
 
-  private static void drStream(String inPath) {
+  private static void drStream(
+      String inPath, String jobs, String chunkSizeMb, String output, boolean verbose) {
+    int parallelism =
+        getDownloadSetting(jobs, ContextEnum.DOWNLOAD_THREADS, RangedDownload.DEFAULT_PARALLELISM);
+    int chunkMb =
+        getDownloadSetting(
+            chunkSizeMb, ContextEnum.DOWNLOAD_CHUNK_MB, RangedDownload.DEFAULT_CHUNK_SIZE >> 20);
+    checkDownloadMemory(1, parallelism, chunkMb);
+    // A batch holds each command's standard output in memory, so the object would be too
+    if (output == null && BatchCommands.isBatchCommand()) {
+      CommandUtils.printErrorAndExit("dr stream in a batch must write to a file; use --output");
+    }
+
     DRElement element = lookup(inPath);
     if (element instanceof DRFile) {
       DRFile file = (DRFile) element;
       FileModel fileModel = file.getFileModel();
       if (fileModel.getFileType() == FileModelType.FILE) {
-        StreamFile.streamFile(fileModel.getFileDetail().getAccessUrl());
+        StreamFile.streamFile(fileModel, parallelism, chunkMb << 20, output, verbose);
       }
     } else {
       CommandUtils.printErrorAndExit("You can only stream files right now");
     }
   }
 
+  private static void drGet(String inPath, String localDir, String jobs) {
+    int fileJobs = DownloadTree.DEFAULT_JOBS;
+    if (jobs != null) {
+      fileJobs = NumberUtils.toInt(jobs, 0);
+      if (fileJobs <= 0) {
+        CommandUtils.printErrorAndExit("Invalid jobs; must be a positive integer");
+      }
+    }
+    int parallelism =
+        getDownloadSetting(null, ContextEnum.DOWNLOAD_THREADS, RangedDownload.DEFAULT_PARALLELISM);
+    int chunkMb =
+        getDownloadSetting(
+            null, ContextEnum.DOWNLOAD_CHUNK_MB, RangedDownload.DEFAULT_CHUNK_SIZE >> 20);
+    checkDownloadMemory(fileJobs, parallelism, chunkMb);
+
+    // Gather every file below the path, fetching the whole tree in as few calls as we can
+    DRElement element = lookup(inPath, DRFile.FULL_DEPTH);
+    List<FileModel> files = new ArrayList<>();
+    String rootPath = null;
+    try {
+      if (element instanceof DRFile) {
+        DRFile drFile = (DRFile) element;
+        drFile.expand(DRFile.FULL_DEPTH);
+        FileModel fileModel = drFile.getFileModel();
+        rootPath =
+            (fileModel.getFileType() == FileModelType.FILE)
+                ? StringUtils.substringBeforeLast(fileModel.getPath(), "/")
+                : fileModel.getPath();
+        collectFiles(fileModel, files);
+      } else if (element instanceof DRCollectionFiles) {
+        rootPath = "/";
+        for (DRElement child : element.enumerate()) {
+          DRFile drFile = (DRFile) child;
+          drFile.expand(DRFile.FULL_DEPTH);
+          collectFiles(drFile.getFileModel(), files);
+        }
+      } else {
+        CommandUtils.printErrorAndExit("You can only get files and directories");
+      }
+    } catch (DataRepoClientException ex) {
+      CommandUtils.invalidateCachedNames(ex);
+      CommandUtils.printErrorAndExit("Error enumerating files: " + ex.getMessage());
+    }
+
+    DownloadTree.Summary summary =
+        new DownloadTree(StorageClient.get(), Paths.get(localDir))
+            .jobs(fileJobs)
+            .parallelism(parallelism)
+            .chunkSize(chunkMb << 20)
+            .download(files, rootPath);
+
+    System.out.printf(
+        "%d files downloaded (%d bytes); %d files already up to date%n",
+        summary.getDownloadedFiles(), summary.getDownloadedBytes(), summary.getSkippedFiles());
+    if (!summary.getFailures().isEmpty()) {
+      for (String failure : summary.getFailures()) {
+        System.out.println("  " + failure);
+      }
+      CommandUtils.printErrorAndExit(
+          summary.getFailures().size() + " files failed; run the same get again to retry them");
+    }
+  }
+
+  // Add the files below a file model; directories must already be expanded
+  private static void collectFiles(FileModel fileModel, List<FileModel> files) {
+    if (fileModel.getFileType() == FileModelType.FILE) {
+      files.add(fileModel);
+    } else {
+      for (FileModel item : fileModel.getDirectoryDetail().getContents()) {
+        collectFiles(item, files);
+      }
+    }
+  }
+
   // General element lookup
   private static DRElement lookup(String inPath) {
-    String path = CommandUtils.makeFullPath(inPath);
-    String[] pathParts = StringUtils.split(path, CommandUtils.SLASH);
-    LinkedList<String> pathList = new LinkedList<>(Arrays.asList(pathParts));
-    return new DRRoot().lookup(pathList);
+    return lookup(inPath, DRFile.DEFAULT_FETCH_DEPTH);
+  }
+
+  private static DRElement lookup(String inPath, int fetchDepth) {
+    return ElementCache.lookup(CommandUtils.makeFullPath(inPath), fetchDepth);
   }
 }
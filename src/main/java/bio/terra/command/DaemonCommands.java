@@ -0,0 +1,99 @@
+package bio.terra.command;
+
+import bio.terra.context.Context;
+import bio.terra.context.ContextEnum;
+import bio.terra.daemon.DaemonClient;
+import bio.terra.daemon.DaemonServer;
+import bio.terra.parser.Command;
+import bio.terra.parser.ParsedResult;
+import bio.terra.parser.Syntax;
+import java.io.IOException;
+import java.util.function.ToIntFunction;
+import org.apache.commons.lang3.StringUtils;
+
+public final class DaemonCommands {
+
+  private DaemonCommands() {}
+
+  public static Syntax getSyntax() {
+    return new Syntax()
+        .addCommand(
+            new Command()
+                .primaryNames(new String[] {"daemon", "start"})
+                .commandId(CommandEnum.COMMAND_DAEMON_START.getCommandId())
+                .help(
+                    "run later jadecli commands from this directory in this process, keeping it "
+                        + "warm; runs until stopped, so start it in the background"))
+        .addCommand(
+            new Command()
+                .primaryNames(new String[] {"daemon", "stop"})
+                .commandId(CommandEnum.COMMAND_DAEMON_STOP.getCommandId())
+                .help("stop the running daemon"))
+        .addCommand(
+            new Command()
+                .primaryNames(new String[] {"daemon", "status"})
+                .commandId(CommandEnum.COMMAND_DAEMON_STATUS.getCommandId())
+                .help("show the running daemon"));
+  }
+
+  /**
+   * Dispatch a daemon command.
+   *
+   * @param command command to run
+   * @param result parsed command line
+   * @param runner runs one command line and returns its exit status; the daemon uses it to run the
+   *     commands it is sent
+   * @return true if the command was handled
+   */
+  public static boolean dispatchCommand(
+      CommandEnum command, ParsedResult result, ToIntFunction<String[]> runner) {
+    switch (command) {
+      case COMMAND_DAEMON_START:
+        daemonStart(runner);
+        break;
+      case COMMAND_DAEMON_STOP:
+        if (!DaemonClient.stop()) {
+          CommandUtils.printErrorAndExit("No daemon is running");
+        }
+        break;
+      case COMMAND_DAEMON_STATUS:
+        if (!DaemonClient.status()) {
+          CommandUtils.printErrorAndExit("No daemon is running");
+        }
+        break;
+      default:
+        return false;
+    }
+    return true;
+  }
+
+  private static void daemonStart(ToIntFunction<String[]> runner) {
+    if (CommandUtils.isEmbedded()) {
+      CommandUtils.printErrorAndExit("A daemon cannot be started from within a daemon");
+    }
+    if (DaemonClient.status()) {
+      CommandUtils.printErrorAndExit("A daemon is already running; stop it first");
+    }
+
+    try {
+      new DaemonServer(
+              args -> {
+                refreshContext();
+                return runner.applyAsInt(args);
+              })
+          .serve();
+    } catch (IOException ex) {
+      CommandUtils.printErrorAndExit("Daemon failed: " + ex.getMessage());
+    }
+  }
+
+  // Pick up session changes made by jadecli processes that did not go through the daemon
+  private static void refreshContext() {
+    Context context = Context.getInstance();
+    String basePath = context.getContextItem(ContextEnum.BASE_PATH);
+    context.reload();
+    if (!StringUtils.equals(basePath, context.getContextItem(ContextEnum.BASE_PATH))) {
+      DRApi.reset();
+    }
+  }
+}
@@ -1,10 +1,14 @@
 package bio.terra.command;
 
+import bio.terra.context.LoadJournal;
+import bio.terra.context.NameCache;
 import bio.terra.datarepo.model.BillingProfileModel;
 import bio.terra.datarepo.model.BulkLoadArrayRequestModel;
 import bio.terra.datarepo.model.BulkLoadArrayResultModel;
 import bio.terra.datarepo.model.BulkLoadFileModel;
 import bio.terra.datarepo.model.BulkLoadFileResultModel;
+import bio.terra.datarepo.model.BulkLoadFileState;
+import bio.terra.datarepo.model.BulkLoadResultModel;
 import bio.terra.datarepo.model.DatasetRequestModel;
 import bio.terra.datarepo.model.DatasetSummaryModel;
 import bio.terra.datarepo.model.DeleteResponseModel;
@@ -12,6 +16,8 @@ import bio.terra.datarepo.model.FileModel;
 import bio.terra.datarepo.model.IngestRequestModel;
 import bio.terra.datarepo.model.IngestResponseModel;
 import bio.terra.datarepo.model.PolicyResponse;
+import bio.terra.formatting.FormatBulkLoadFileResult;
+import bio.terra.formatting.TableFormatter;
 import bio.terra.model.DRCollectionType;
 import bio.terra.model.DRDataset;
 import bio.terra.model.DRFile;
@@ -20,11 +26,16 @@ import bio.terra.parser.Command;
 import bio.terra.parser.Option;
 import bio.terra.parser.ParsedResult;
 import bio.terra.parser.Syntax;
+import bio.terra.tdrwrapper.BulkFileLoader;
 import bio.terra.tdrwrapper.exception.DataRepoClientException;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
+import com.google.cloud.storage.Storage;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
 public final class DatasetCommands {
 
@@ -160,6 +171,83 @@ public final class DatasetCommands {
                         .optional(true)
                         .help("Description of the file being copied"))
                 .addOption(CommandUtils.formatOption))
+        .addCommand(
+            new Command()
+                .primaryNames(new String[] {"dataset", "file", "load-bulk"})
+                .commandId(CommandEnum.COMMAND_DATASET_FILE_BULK.getCommandId())
+                .help("Load many files into a dataset from a manifest")
+                .addArgument(
+                    new Argument()
+                        .name("dataset-name")
+                        .optional(false)
+                        .help("Name of the dataset where the files should go"))
+                .addOption(
+                    new Option()
+                        .shortName("i")
+                        .longName("manifest")
+                        .hasArgument(true)
+                        .optional(false)
+                        .help(
+                            "Manifest of files to load: a local TSV file (source, target, mime"
+                                + " type, description), a local JSON lines file, or a gs:// prefix"
+                                + " whose objects are all loaded"))
+                .addOption(
+                    new Option()
+                        .longName("manifest-format")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help(
+                            "Manifest format: tsv or json; defaults to json for .json and .jsonl"
+                                + " files and tsv otherwise"))
+                .addOption(
+                    new Option()
+                        .shortName("p")
+                        .longName("profile")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help(
+                            "Identifies the profile to use for allocating storage for the files."
+                                + " Defaults to the dataset profile, if not specified."))
+                .addOption(
+                    new Option()
+                        .longName("array-size")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help(
+                            "Files per bulk load job; defaults to "
+                                + BulkFileLoader.DEFAULT_ARRAY_SIZE))
+                .addOption(
+                    new Option()
+                        .shortName("j")
+                        .longName("jobs")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help(
+                            "Number of bulk load jobs to run at once; defaults to "
+                                + BulkFileLoader.DEFAULT_JOBS))
+                .addOption(
+                    new Option()
+                        .longName("max-failed")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help(
+                            "Failed files allowed per bulk load job before the job stops;"
+                                + " defaults to the array size"))
+                .addOption(
+                    new Option()
+                        .longName("load-tag")
+                        .hasArgument(true)
+                        .optional(true)
+                        .help("Load tag for the jobs; a unique tag is generated if not specified"))
+                .addOption(
+                    new Option()
+                        .longName("resume")
+                        .hasArgument(false)
+                        .optional(true)
+                        .help(
+                            "Resume an earlier load with the same --load-tag, skipping the files"
+                                + " its journal records as loaded"))
+                .addOption(CommandUtils.formatOption))
         .addCommand(
             new Command()
                 .primaryNames(new String[] {"dataset", "file", "show"})
@@ -258,13 +346,26 @@ public final class DatasetCommands {
       case COMMAND_DATASET_FILE:
         datasetFileLoad(
             result.getArgument("dataset-name"),
-            result.getArgument("profile-id"),
+            result.getArgument("profile"),
             result.getArgument("input-gspath"),
             result.getArgument("target-path"),
             result.getArgument("mime-type"),
             result.getArgument("description"),
             result.getArgument("format"));
         break;
+      case COMMAND_DATASET_FILE_BULK:
+        datasetFileLoadBulk(
+            result.getArgument("dataset-name"),
+            result.getArgument("profile"),
+            result.getArgument("manifest"),
+            result.getArgument("manifest-format"),
+            result.getArgument("array-size"),
+            result.getArgument("jobs"),
+            result.getArgument("max-failed"),
+            result.getArgument("load-tag"),
+            result.found("resume"),
+            result.getArgument("format"));
+        break;
       case COMMAND_DATASET_FILE_SHOW:
         datasetFileShow(
             result.getArgument("dataset-name"),
@@ -315,6 +416,7 @@ public final class DatasetCommands {
         }
 
         DatasetSummaryModel datasetSummary = DRApi.get().createDataset(datasetRequestModel);
+        NameCache.getInstance().invalidate(NameCache.ObjectType.DATASET, datasetSummary.getName());
 
         System.out.println(datasetSummary.toString());
       }
@@ -329,6 +431,7 @@ public final class DatasetCommands {
 
     try {
       DeleteResponseModel deleteResponse = DRApi.get().deleteDataset(summary.getId());
+      NameCache.getInstance().invalidate(NameCache.ObjectType.DATASET, datasetName);
 
       System.out.printf(
           "Dataset deleted: %s (%s)%n", datasetName, deleteResponse.getObjectState().getValue());
@@ -440,12 +543,7 @@ public final class DatasetCommands {
       }
 
       if (targetPath == null) {
-        String[] pathParts = StringUtils.split(inputGspath, '/');
-        if (pathParts.length < 3) {
-          CommandUtils.printErrorAndExit("Invalid GS URI");
-        }
-        String encodedPath = '/' + StringUtils.join(pathParts, '/', 2, pathParts.length);
-        targetPath = URLDecoder.decode(encodedPath, "UTF-8");
+        targetPath = BulkLoadManifest.deriveTargetPath(inputGspath);
       }
 
       if (mimeType == null) {
@@ -494,9 +592,144 @@ public final class DatasetCommands {
     } catch (DataRepoClientException ex) {
       System.out.println("Error processing file ingest: ");
       CommandUtils.printError(ex);
-    } catch (UnsupportedEncodingException e) {
-      CommandUtils.printErrorAndExit("Error decoding gspath into target URI:\n" + e.getMessage());
+    } catch (IllegalArgumentException ex) {
+      CommandUtils.printErrorAndExit(ex.getMessage());
+    }
+  }
+
+  private static void datasetFileLoadBulk(
+      String datasetName,
+      String profileName,
+      String manifest,
+      String manifestFormat,
+      String arraySize,
+      String jobs,
+      String maxFailed,
+      String loadTag,
+      boolean resume,
+      String format) {
+    format = CommandUtils.validateFormat(format);
+    if (resume && loadTag == null) {
+      CommandUtils.printErrorAndExit("--resume requires the --load-tag of the load to resume");
+    }
+    if (loadTag == null) {
+      loadTag = "clibulkload" + UUID.randomUUID();
+    }
+
+    DatasetSummaryModel summary = CommandUtils.findDatasetByName(datasetName);
+    String profileId;
+    if (profileName == null) {
+      profileId = summary.getDefaultProfileId();
+    } else {
+      profileId = CommandUtils.findProfileByName(profileName).getId();
     }
+
+    // Every finished array is checkpointed in the journal before we report it, so a load that dies
+    // can be resumed. Progress goes to stderr so the summary on stdout stays parseable.
+    LoadJournal journal = LoadJournal.forLoadTag(loadTag);
+    System.err.println("Load tag " + loadTag + "; journal " + journal.getJournalFile());
+    int[] counts = new int[2]; // arrays, files
+    BulkFileLoader loader =
+        new BulkFileLoader(DRApi.get(), summary.getId())
+            .profileId(profileId)
+            .loadTag(loadTag)
+            .arraySize(parseCount(arraySize, BulkFileLoader.DEFAULT_ARRAY_SIZE, 1, "array-size"))
+            .jobs(parseCount(jobs, BulkFileLoader.DEFAULT_JOBS, 1, "jobs"))
+            .maxFailedFileLoads(
+                (maxFailed == null) ? null : parseCount(maxFailed, 0, 0, "max-failed"))
+            .arrayListener(
+                (arrayNumber, request, results) -> {
+                  journal.append(results);
+                  counts[0]++;
+                  counts[1] += results.size();
+                  System.err.printf(
+                      "Load array %d finished: %d arrays and %d files done%n",
+                      arrayNumber, counts[0], counts[1]);
+                });
+
+    List<BulkLoadFileResultModel> results = null;
+    int skipped = 0;
+    Storage storage = StringUtils.startsWith(manifest, "gs://") ? StorageClient.get() : null;
+    try (BulkLoadManifest files = BulkLoadManifest.open(manifest, manifestFormat, storage)) {
+      if (resume) {
+        files.skipTargets(journal.readSucceededTargets());
+      }
+      results = loader.load(files);
+      skipped = files.getSkippedCount();
+    } catch (IllegalArgumentException | UncheckedIOException ex) {
+      CommandUtils.printErrorAndExit("Error processing bulk file load: " + ex.getMessage());
+    } finally {
+      journal.close();
+    }
+
+    printBulkLoadResults(loadTag, results, skipped, format);
+  }
+
+  private static void printBulkLoadResults(
+      String loadTag, List<BulkLoadFileResultModel> results, int skipped, String format) {
+    BulkLoadResultModel loadSummary =
+        new BulkLoadResultModel().totalFiles(results.size()).succeededFiles(0).failedFiles(0);
+    for (BulkLoadFileResultModel result : results) {
+      if (result.getState() == BulkLoadFileState.SUCCEEDED) {
+        loadSummary.succeededFiles(loadSummary.getSucceededFiles() + 1);
+      } else if (result.getState() == BulkLoadFileState.FAILED) {
+        loadSummary.failedFiles(loadSummary.getFailedFiles() + 1);
+      }
+    }
+    loadSummary.notTriedFiles(
+        loadSummary.getTotalFiles()
+            - loadSummary.getSucceededFiles()
+            - loadSummary.getFailedFiles());
+
+    switch (CommandUtils.CLIFormatFlags.lookup(format)) {
+      case CLI_FORMAT_TEXT:
+        // Size the columns from the first rows, so a large load starts printing at once
+        new TableFormatter<>(
+                results.stream().map(FormatBulkLoadFileResult::new).iterator(),
+                System.out,
+                0,
+                TableFormatter.DEFAULT_SAMPLE_SIZE)
+            .printTable();
+        System.out.println();
+        System.out.println("Load tag  : " + loadTag);
+        System.out.println("Total     : " + loadSummary.getTotalFiles());
+        System.out.println("Succeeded : " + loadSummary.getSucceededFiles());
+        System.out.println("Failed    : " + loadSummary.getFailedFiles());
+        System.out.println("Not tried : " + loadSummary.getNotTriedFiles());
+        if (skipped > 0) {
+          System.out.println("Skipped   : " + skipped + " already loaded");
+        }
+        break;
+      case CLI_FORMAT_JSON:
+        Map<String, Object> objectValues = new LinkedHashMap<>();
+        objectValues.put("loadTag", loadTag);
+        objectValues.put("loadSummary", loadSummary);
+        objectValues.put("skippedFiles", skipped);
+        objectValues.put("loadFileResults", results);
+        CommandUtils.outputPrettyJson(objectValues);
+        break;
+    }
+
+    if (loadSummary.getSucceededFiles() < loadSummary.getTotalFiles()) {
+      CommandUtils.printErrorAndExit(
+          "Bulk file load incomplete: "
+              + (loadSummary.getTotalFiles() - loadSummary.getSucceededFiles())
+              + " files were not loaded; rerun with --load-tag "
+              + loadTag
+              + " --resume to retry them");
+    }
+  }
+
+  private static int parseCount(String value, int defaultValue, int minimum, String optionName) {
+    if (value == null) {
+      return defaultValue;
+    }
+    int count = NumberUtils.toInt(value, Integer.MIN_VALUE);
+    if (count < minimum) {
+      CommandUtils.printErrorAndExit(
+          "Invalid " + optionName + "; must be an integer of at least " + minimum);
+    }
+    return count;
   }
 
   private static void datasetFileShow(
@@ -517,14 +750,16 @@ public final class DatasetCommands {
 
     // Show dataset file is the same as describe
     DatasetSummaryModel datasetSummary = CommandUtils.findDatasetByName(datasetName);
-    FileModel fileModel = null;
     try {
-      fileModel = DRApi.get().lookupFileByPath(datasetSummary.getId(), filePath, depthInt);
+      FileModel fileModel =
+          DRApi.get().lookupFileByPath(datasetSummary.getId(), filePath, depthInt);
+      DRFile drFile = new DRFile(DRCollectionType.COLLECTION_TYPE_DATASET, fileModel);
+      // The data repo may stop short of the requested depth on large trees; fill in the rest
+      drFile.expand(depthInt);
+      drFile.describe(format);
     } catch (DataRepoClientException ex) {
+      CommandUtils.invalidateCachedNames(ex);
       CommandUtils.printErrorAndExit("Error processing file lookup: " + ex.getMessage());
     }
-
-    DRFile drFile = new DRFile(DRCollectionType.COLLECTION_TYPE_DATASET, fileModel);
-    drFile.describe(format);
   }
 }
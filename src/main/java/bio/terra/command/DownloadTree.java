@@ -0,0 +1,188 @@
+package bio.terra.command;
+
+import bio.terra.datarepo.model.FileModel;
+import com.google.cloud.storage.Storage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * DownloadTree copies data repo files to a local directory, mirroring their paths below a root
+ * path. A bounded pool of workers downloads several files at once; each file is itself read with a
+ * {@link RangedDownload}.
+ *
+ * <p>Each file is written to a temp file in its target directory and renamed into place when it is
+ * complete, so an interrupted run never leaves a partial file under the real name. A local file
+ * whose size and checksum already match the data repo is skipped, so running the same get again
+ * picks up where the last one stopped. Downloaded bytes are verified against the data repo
+ * checksum before the rename.
+ */
+public final class DownloadTree {
+  public static final int DEFAULT_JOBS = 4;
+
+  private static final String TEMP_SUFFIX = ".part";
+
+  private final Storage storage;
+  private final Path localRoot;
+  private int jobs = DEFAULT_JOBS;
+  private int parallelism = RangedDownload.DEFAULT_PARALLELISM;
+  private int chunkSize = RangedDownload.DEFAULT_CHUNK_SIZE;
+
+  /** What happened to the files of a download */
+  public static final class Summary {
+    private int downloadedFiles;
+    private long downloadedBytes;
+    private int skippedFiles;
+    private final List<String> failures = new ArrayList<>();
+
+    public int getDownloadedFiles() {
+      return downloadedFiles;
+    }
+
+    public long getDownloadedBytes() {
+      return downloadedBytes;
+    }
+
+    public int getSkippedFiles() {
+      return skippedFiles;
+    }
+
+    /** One message per file that could not be downloaded */
+    public List<String> getFailures() {
+      return failures;
+    }
+  }
+
+  public DownloadTree(Storage storage, Path localRoot) {
+    this.storage = storage;
+    this.localRoot = localRoot.toAbsolutePath().normalize();
+  }
+
+  public DownloadTree jobs(int jobs) {
+    if (jobs <= 0) {
+      throw new IllegalArgumentException("Jobs must be positive: " + jobs);
+    }
+    this.jobs = jobs;
+    return this;
+  }
+
+  public DownloadTree parallelism(int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  public DownloadTree chunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * Download files. Progress is reported on stderr as each file finishes.
+   *
+   * @param files files to download
+   * @param rootPath data repo path that maps to the local root; file paths must be below it
+   * @return counts of what was done
+   */
+  public Summary download(List<FileModel> files, String rootPath) {
+    String prefix = StringUtils.appendIfMissing(rootPath, "/");
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            jobs,
+            runnable -> {
+              Thread thread = new Thread(runnable, "get-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    Summary summary = new Summary();
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>(files.size());
+      for (FileModel file : files) {
+        futures.add(executor.submit(() -> getFile(file, prefix)));
+      }
+
+      for (int i = 0; i < files.size(); i++) {
+        String path = files.get(i).getPath();
+        String status;
+        try {
+          if (futures.get(i).get()) {
+            summary.downloadedFiles++;
+            summary.downloadedBytes += files.get(i).getSize();
+            status = "downloaded";
+          } else {
+            summary.skippedFiles++;
+            status = "unchanged";
+          }
+        } catch (ExecutionException ex) {
+          summary.failures.add(path + ": " + ex.getCause().getMessage());
+          status = "FAILED";
+        }
+        System.err.printf("[%d/%d] %s %s%n", i + 1, files.size(), status, path);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for downloads", ex);
+    } finally {
+      executor.shutdownNow();
+    }
+    return summary;
+  }
+
+  // Returns true if the file was downloaded, false if the local copy already matched
+  private boolean getFile(FileModel file, String prefix) throws IOException {
+    Path target = resolveTarget(file.getPath(), prefix);
+    if (FileChecksums.localFileMatches(target, file)) {
+      return false;
+    }
+
+    Path directory = target.getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, "." + target.getFileName(), TEMP_SUFFIX);
+    try {
+      RangedDownload download =
+          FileChecksums.requestVerification(
+              RangedDownload.forBlob(
+                      storage,
+                      StreamFile.parseGsPath(file.getFileDetail().getAccessUrl()),
+                      file.getSize())
+                  .parallelism(parallelism)
+                  .chunkSize(chunkSize),
+              file);
+      try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        download.toFile(out);
+      }
+      // A bad copy never gets the real name; the temp file is removed below
+      String mismatch = FileChecksums.findMismatch(download, file);
+      if (mismatch != null) {
+        throw new IOException(mismatch);
+      }
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    return true;
+  }
+
+  private Path resolveTarget(String filePath, String prefix) {
+    if (!StringUtils.startsWith(filePath, prefix)) {
+      throw new IllegalArgumentException("File is not below " + prefix);
+    }
+    Path target = localRoot.resolve(StringUtils.removeStart(filePath, prefix)).normalize();
+    if (!target.startsWith(localRoot) || target.equals(localRoot)) {
+      throw new IllegalArgumentException("File path leads outside of " + localRoot);
+    }
+    return target;
+  }
+}
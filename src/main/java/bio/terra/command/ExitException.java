@@ -0,0 +1,20 @@
+package bio.terra.command;
+
+/**
+ * Thrown in place of System.exit when commands run embedded in a long-lived process. The command
+ * runner catches it and reports the status; the process carries on with the next command.
+ */
+public class ExitException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final int status;
+
+  public ExitException(int status) {
+    super("exit " + status);
+    this.status = status;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+}
@@ -0,0 +1,141 @@
+package bio.terra.command;
+
+import bio.terra.datarepo.model.DRSChecksum;
+import bio.terra.datarepo.model.FileModel;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.apache.commons.lang3.StringUtils;
+
+/** Helpers for comparing local bytes with the checksums the data repo keeps for a file. */
+public final class FileChecksums {
+  public static final String CRC32C = "crc32c";
+  public static final String MD5 = "md5";
+
+  private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+  private FileChecksums() {}
+
+  /**
+   * Find a checksum of a file.
+   *
+   * @param fileModel file from the data repo
+   * @param type checksum type: crc32c or md5
+   * @return the checksum as hex; null if the data repo does not have one of that type
+   */
+  public static String getChecksum(FileModel fileModel, String type) {
+    if (fileModel.getChecksums() == null) {
+      return null;
+    }
+    for (DRSChecksum checksum : fileModel.getChecksums()) {
+      if (StringUtils.equalsIgnoreCase(checksum.getType(), type)) {
+        return checksum.getChecksum();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check whether a local file already holds the bytes of a data repo file: same size and same
+   * checksum. Prefers crc32c, which is cheaper to compute; falls back to md5. A file with neither
+   * checksum is matched on size alone.
+   *
+   * @param localFile local file
+   * @param fileModel data repo file
+   * @return true if the local file matches
+   * @throws IOException on a read error
+   */
+  public static boolean localFileMatches(Path localFile, FileModel fileModel) throws IOException {
+    if (!Files.isRegularFile(localFile)
+        || fileModel.getSize() == null
+        || Files.size(localFile) != fileModel.getSize()) {
+      return false;
+    }
+
+    String crc32c = getChecksum(fileModel, CRC32C);
+    String md5 = getChecksum(fileModel, MD5);
+    if (crc32c == null && md5 == null) {
+      return true;
+    }
+
+    Crc32c crc = new Crc32c();
+    MessageDigest digest = (crc32c == null) ? newMd5() : null;
+    ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(localFile, StandardOpenOption.READ)) {
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        if (digest == null) {
+          crc.update(buffer);
+        } else {
+          digest.update(buffer);
+        }
+        buffer.clear();
+      }
+    }
+    if (digest == null) {
+      return StringUtils.equalsIgnoreCase(crc32c, Crc32c.toHex(crc.getValue()));
+    }
+    return StringUtils.equalsIgnoreCase(md5, toHex(digest.digest()));
+  }
+
+  /**
+   * Ask a download to compute the checksum we can verify it with. crc32c is preferred: it is
+   * computed per range in parallel, while an md5 has to run over the bytes in order and could slow
+   * a fast download. md5 is used only for files without a crc32c.
+   *
+   * @param download download to configure
+   * @param fileModel file being downloaded
+   * @return the download
+   */
+  public static RangedDownload requestVerification(RangedDownload download, FileModel fileModel) {
+    boolean haveCrc32c = getChecksum(fileModel, CRC32C) != null;
+    return download
+        .computeCrc32c(haveCrc32c)
+        .computeMd5(!haveCrc32c && getChecksum(fileModel, MD5) != null);
+  }
+
+  /**
+   * Compare the checksums computed by a finished download with the data repo checksums.
+   *
+   * @param download finished download
+   * @param fileModel file that was downloaded
+   * @return a description of the mismatch; null if the checksums match or none were computed
+   */
+  public static String findMismatch(RangedDownload download, FileModel fileModel) {
+    if (download.getCrc32c() != null) {
+      return compare(CRC32C, getChecksum(fileModel, CRC32C), Crc32c.toHex(download.getCrc32c()));
+    }
+    if (download.getMd5() != null) {
+      return compare(MD5, getChecksum(fileModel, MD5), download.getMd5());
+    }
+    return null;
+  }
+
+  private static String compare(String type, String expected, String actual) {
+    if (StringUtils.equalsIgnoreCase(expected, actual)) {
+      return null;
+    }
+    return type + " mismatch: expected " + expected + " but the data read has " + actual;
+  }
+
+  static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  static MessageDigest newMd5() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("MD5 is not available", ex);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import static bio.terra.command.CommandEnum.COMMAND_PROFILE_CREATE;
 import static bio.terra.command.CommandEnum.COMMAND_PROFILE_POLICY_ADD;
 import static bio.terra.command.CommandUtils.outputPrettyJson;
 
+import bio.terra.context.NameCache;
 import bio.terra.datarepo.model.BillingProfileModel;
 import bio.terra.datarepo.model.BillingProfileRequestModel;
 import bio.terra.datarepo.model.DeleteResponseModel;
@@ -187,6 +188,7 @@ public final class ProfileCommands {
 
     try {
       BillingProfileModel profile = DRApi.get().createProfile(profileRequest);
+      NameCache.getInstance().invalidate(NameCache.ObjectType.PROFILE, name);
       printProfile(profile, format);
     } catch (DataRepoClientException ex) {
       System.out.println("Error processing profile create:");
@@ -199,6 +201,7 @@ public final class ProfileCommands {
 
     try {
       DeleteResponseModel deleteResponse = DRApi.get().deleteProfile(profile.getId());
+      NameCache.getInstance().invalidate(NameCache.ObjectType.PROFILE, profileName);
       System.out.printf(
           "Profile deleted: %s (%s)%n",
           profile.getProfileName(), deleteResponse.getObjectState().getValue());
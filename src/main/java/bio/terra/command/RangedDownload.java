@@ -0,0 +1,322 @@
+package bio.terra.command;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.Storage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RangedDownload copies an object by splitting it into fixed size chunks and reading several
+ * chunks at once, each over its own connection. A single reader cannot keep a fast VM network
+ * busy; a handful of concurrent ranged reads can.
+ *
+ * <p>Chunks are read into a bounded pool of direct buffers: at most twice the parallelism, so
+ * reads can run ahead of a slow writer without the memory growing with the object. The calling
+ * thread writes the chunks in order, returning each buffer to the pool as it goes. Output is
+ * either a channel, such as stdout, or a file written with positional writes.
+ *
+ * <p>Checksums are computed on the same buffers as they pass through, so verifying a download
+ * costs no extra I/O. The crc32c of each chunk is computed by the worker that read it and the
+ * chunk values are combined in order. An md5 can only be computed in order, so it is done on the
+ * writing thread.
+ */
+public final class RangedDownload {
+  public static final int DEFAULT_PARALLELISM = 4;
+  public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+  public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+  // Most direct buffer memory a command should ask for, across all of its downloads
+  public static final long MAX_BUFFER_MEMORY = 1024L * 1024 * 1024;
+
+  private static final String MAX_DIRECT_MEMORY_OPTION = "-XX:MaxDirectMemorySize=";
+
+  /** Opens a channel that reads an object starting at a position. */
+  @FunctionalInterface
+  public interface RangeOpener {
+    /**
+     * @param position offset of the first byte to read
+     * @param length number of bytes that will be read from the channel
+     * @return the open channel; closed by the caller
+     */
+    ReadableByteChannel open(long position, int length) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface ChunkWriter {
+    void write(long position, ByteBuffer buffer) throws IOException;
+  }
+
+  private final RangeOpener opener;
+  private final long size;
+  private int parallelism = DEFAULT_PARALLELISM;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  private boolean computeCrc32c;
+  private boolean computeMd5;
+  private Long crc32c;
+  private String md5;
+
+  public RangedDownload(RangeOpener opener, long size) {
+    this.opener = opener;
+    this.size = size;
+  }
+
+  /**
+   * Make a download of a GCS object. Each range gets its own reader. The reader chunk size is set
+   * to the range length, so each range is fetched with a single request.
+   *
+   * @param storage storage client
+   * @param blobId object to read
+   * @param size size of the object
+   * @return the download
+   */
+  public static RangedDownload forBlob(Storage storage, BlobId blobId, long size) {
+    return new RangedDownload(
+        (position, length) -> {
+          ReadChannel reader = storage.reader(blobId);
+          reader.setChunkSize(length);
+          reader.seek(position);
+          return reader;
+        },
+        size);
+  }
+
+  public RangedDownload parallelism(int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  public RangedDownload chunkSize(int chunkSize) {
+    if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+      throw new IllegalArgumentException(
+          "Chunk size must be positive and at most " + MAX_CHUNK_SIZE + ": " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  public RangedDownload computeCrc32c(boolean computeCrc32c) {
+    this.computeCrc32c = computeCrc32c;
+    return this;
+  }
+
+  public RangedDownload computeMd5(boolean computeMd5) {
+    this.computeMd5 = computeMd5;
+    return this;
+  }
+
+  /**
+   * Direct buffer memory one download can hold: a chunk sized buffer for each pooled chunk.
+   *
+   * @param parallelism concurrent range reads
+   * @param chunkSize bytes per chunk
+   * @return bytes of direct buffers
+   */
+  public static long bufferMemory(int parallelism, int chunkSize) {
+    return parallelism * 2L * chunkSize;
+  }
+
+  /**
+   * Budget for the direct buffers of all downloads in this JVM: {@link #MAX_BUFFER_MEMORY}, or
+   * less if the JVM allows less direct memory.
+   *
+   * @return bytes of direct buffers
+   */
+  public static long maxBufferMemory() {
+    long maxDirectMemory = Runtime.getRuntime().maxMemory(); // the JVM default
+    for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      if (argument.startsWith(MAX_DIRECT_MEMORY_OPTION)) {
+        long size = parseMemorySize(argument.substring(MAX_DIRECT_MEMORY_OPTION.length()));
+        if (size > 0) {
+          maxDirectMemory = size;
+        }
+      }
+    }
+    return Math.min(MAX_BUFFER_MEMORY, maxDirectMemory);
+  }
+
+  // Parse a JVM memory size such as 512m or 2G; -1 if it is malformed
+  static long parseMemorySize(String value) {
+    String lower = value.trim().toLowerCase(Locale.ROOT);
+    int shift = 0;
+    if (lower.endsWith("k")) {
+      shift = 10;
+    } else if (lower.endsWith("m")) {
+      shift = 20;
+    } else if (lower.endsWith("g")) {
+      shift = 30;
+    } else if (lower.endsWith("t")) {
+      shift = 40;
+    }
+    String digits = (shift == 0) ? lower : lower.substring(0, lower.length() - 1);
+    try {
+      long size = Long.parseLong(digits);
+      return (size < 0 || size > (Long.MAX_VALUE >> shift)) ? -1 : size << shift;
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  /** @return crc32c of the downloaded bytes; null if not computed */
+  public Long getCrc32c() {
+    return crc32c;
+  }
+
+  /** @return md5 of the downloaded bytes as hex; null if not computed */
+  public String getMd5() {
+    return md5;
+  }
+
+  /**
+   * Write the object, in order, to a channel. The channel is not closed.
+   *
+   * @param out destination channel
+   * @throws IOException on a read or write failure
+   */
+  public void toChannel(WritableByteChannel out) throws IOException {
+    run(
+        (position, buffer) -> {
+          while (buffer.hasRemaining()) {
+            out.write(buffer);
+          }
+        });
+  }
+
+  /**
+   * Write the object to a file using positional writes. The file is not closed or truncated.
+   *
+   * @param out destination file
+   * @throws IOException on a read or write failure
+   */
+  public void toFile(FileChannel out) throws IOException {
+    run(
+        (position, buffer) -> {
+          long filePosition = position;
+          while (buffer.hasRemaining()) {
+            filePosition += out.write(buffer, filePosition);
+          }
+        });
+  }
+
+  private void run(ChunkWriter writer) throws IOException {
+    long chunkCount = (size + chunkSize - 1) / chunkSize;
+    int poolSize = (int) Math.min(parallelism * 2L, chunkCount);
+    int bufferSize = (int) Math.min(chunkSize, size);
+    Deque<ByteBuffer> pool = new ArrayDeque<>(poolSize);
+    Deque<Future<Chunk>> pending = new ArrayDeque<>(poolSize);
+    long crc = 0; // crc32c of no bytes
+    MessageDigest digest = computeMd5 ? FileChecksums.newMd5() : null;
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism,
+            runnable -> {
+              Thread thread = new Thread(runnable, "download-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    try {
+      long nextChunk = 0;
+      for (long chunk = 0; chunk < chunkCount; chunk++) {
+        // Keep every pooled buffer busy. Buffers are allocated on first use, so a small object
+        // never allocates more than it needs.
+        while (nextChunk < chunkCount && pending.size() < poolSize) {
+          ByteBuffer buffer = pool.isEmpty() ? ByteBuffer.allocateDirect(bufferSize) : pool.pop();
+          long position = nextChunk * chunkSize;
+          int length = (int) Math.min(chunkSize, size - position);
+          pending.add(executor.submit(() -> readRange(position, length, buffer)));
+          nextChunk++;
+        }
+
+        Chunk done = await(pending.remove());
+        if (computeCrc32c) {
+          crc = Crc32c.combine(crc, done.crc, done.buffer.remaining());
+        }
+        if (digest != null) {
+          digest.update(done.buffer.duplicate());
+        }
+        writer.write(chunk * chunkSize, done.buffer);
+        pool.push(done.buffer);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    crc32c = computeCrc32c ? crc : null;
+    md5 = (digest == null) ? null : FileChecksums.toHex(digest.digest());
+  }
+
+  private Chunk readRange(long position, int length, ByteBuffer buffer) throws IOException {
+    buffer.clear();
+    buffer.limit(length);
+    try (ReadableByteChannel channel = opener.open(position, length)) {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          throw new EOFException(
+              "Object ended early reading " + length + " bytes at offset " + position);
+        }
+      }
+    }
+    buffer.flip();
+
+    long crc = 0;
+    if (computeCrc32c) {
+      Crc32c chunkCrc = new Crc32c();
+      chunkCrc.update(buffer.duplicate());
+      crc = chunkCrc.getValue();
+    }
+    return new Chunk(buffer, crc);
+  }
+
+  // A chunk read into a pooled buffer, with its crc32c if we are computing it
+  private static final class Chunk {
+    private final ByteBuffer buffer;
+    private final long crc;
+
+    Chunk(ByteBuffer buffer, long crc) {
+      this.buffer = buffer;
+      this.crc = crc;
+    }
+  }
+
+  private static Chunk await(Future<Chunk> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for download");
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException("Download failed", cause);
+    }
+  }
+}
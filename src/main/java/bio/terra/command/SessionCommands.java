@@ -96,5 +96,7 @@ public final class SessionCommands {
 
   private static void sessionSet(String name, String value) {
     Context.getInstance().setContextItemByName(name, value);
+    // The api client was built with the old settings, such as the base path
+    DRApi.reset();
   }
 }
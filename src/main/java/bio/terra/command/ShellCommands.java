@@ -0,0 +1,164 @@
+package bio.terra.command;
+
+import bio.terra.context.Context;
+import bio.terra.context.ContextEnum;
+import bio.terra.model.ElementCache;
+import bio.terra.parser.Command;
+import bio.terra.parser.Syntax;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+public final class ShellCommands {
+  private static final String EXIT = "exit";
+  private static final String QUIT = "quit";
+  private static final String REFRESH = "refresh";
+
+  private ShellCommands() {}
+
+  public static Syntax getSyntax() {
+    return new Syntax()
+        .addCommand(
+            new Command()
+                .primaryNames(new String[] {"shell"})
+                .commandId(CommandEnum.COMMAND_SHELL.getCommandId())
+                .help(
+                    "run jadecli commands read from stdin in one process, keeping the login and "
+                        + "the directories already looked up; 'refresh' forgets them and 'exit' "
+                        + "ends the shell"));
+  }
+
+  /**
+   * Dispatch the shell command.
+   *
+   * @param command command to run
+   * @param runner runs one command line and returns its exit status
+   * @return true if the command was handled
+   */
+  public static boolean dispatchCommand(CommandEnum command, ToIntFunction<String[]> runner) {
+    if (command != CommandEnum.COMMAND_SHELL) {
+      return false;
+    }
+    shell(runner);
+    return true;
+  }
+
+  private static void shell(ToIntFunction<String[]> runner) {
+    if (CommandUtils.isEmbedded()) {
+      CommandUtils.printErrorAndExit("A shell cannot be started from within a shell or daemon");
+    }
+    // Prompt only when a person is typing; scripts piped in get just the command output
+    boolean interactive = (System.console() != null);
+    boolean failed = false;
+
+    CommandUtils.setEmbedded(true);
+    ElementCache.setEnabled(true);
+    try {
+      BufferedReader reader =
+          new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()));
+      while (true) {
+        if (interactive) {
+          String pwd = Context.getInstance().getContextItem(ContextEnum.PWD);
+          System.out.print("jadecli:" + pwd + "> ");
+          System.out.flush();
+        }
+        String line = reader.readLine();
+        if (line == null) {
+          break;
+        }
+
+        List<String> words;
+        try {
+          words = splitLine(line);
+        } catch (IllegalArgumentException ex) {
+          System.err.println(ex.getMessage());
+          failed = true;
+          continue;
+        }
+        if (words.isEmpty() || words.get(0).startsWith("#")) {
+          continue;
+        }
+        String first = words.get(0);
+        if (first.equals(EXIT) || first.equals(QUIT)) {
+          break;
+        }
+        if (first.equals(REFRESH)) {
+          ElementCache.clear();
+          continue;
+        }
+        if (runner.applyAsInt(words.toArray(new String[0])) != 0) {
+          failed = true;
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } finally {
+      ElementCache.setEnabled(false);
+      CommandUtils.setEmbedded(false);
+    }
+
+    // A script run through the shell fails if any of its commands did
+    if (failed && !interactive) {
+      CommandUtils.exit(1);
+    }
+  }
+
+  /**
+   * Split a command line into words the way a shell would, for the common cases: words are
+   * separated by whitespace, quotes group words and are removed, and a backslash escapes the next
+   * character outside single quotes.
+   *
+   * @param line command line
+   * @return the words
+   * @throws IllegalArgumentException if a quote is not closed
+   */
+  static List<String> splitLine(String line) {
+    List<String> words = new ArrayList<>();
+    StringBuilder word = new StringBuilder();
+    boolean inWord = false;
+    char quote = 0;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quote == '\'') {
+        if (c == '\'') {
+          quote = 0;
+        } else {
+          word.append(c);
+        }
+      } else if (c == '\\' && i + 1 < line.length()) {
+        word.append(line.charAt(++i));
+        inWord = true;
+      } else if (quote == '"') {
+        if (c == '"') {
+          quote = 0;
+        } else {
+          word.append(c);
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+        inWord = true;
+      } else if (Character.isWhitespace(c)) {
+        if (inWord) {
+          words.add(word.toString());
+          word.setLength(0);
+          inWord = false;
+        }
+      } else {
+        word.append(c);
+        inWord = true;
+      }
+    }
+    if (quote != 0) {
+      throw new IllegalArgumentException("Unmatched " + quote + " in: " + line);
+    }
+    if (inWord) {
+      words.add(word.toString());
+    }
+    return words;
+  }
+}
@@ -1,5 +1,6 @@
 package bio.terra.command;
 
+import bio.terra.context.NameCache;
 import bio.terra.datarepo.model.BillingProfileModel;
 import bio.terra.datarepo.model.DeleteResponseModel;
 import bio.terra.datarepo.model.PolicyResponse;
@@ -185,6 +186,8 @@ public final class SnapshotCommands {
         }
 
         DRApi.get().createSnapshot(snapshotRequestModel);
+        NameCache.getInstance()
+            .invalidate(NameCache.ObjectType.SNAPSHOT, snapshotRequestModel.getName());
       }
     } catch (DataRepoClientException ex) {
       System.out.println("Error processing snapshot create:");
@@ -196,6 +199,7 @@ public final class SnapshotCommands {
     SnapshotSummaryModel summary = CommandUtils.findSnapshotByName(snapshotName);
     try {
       DeleteResponseModel deleteResponse = DRApi.get().deleteSnapshot(summary.getId());
+      NameCache.getInstance().invalidate(NameCache.ObjectType.SNAPSHOT, snapshotName);
       System.out.printf(
           "Snapshot deleted: %s (%s)%n", snapshotName, deleteResponse.getObjectState().getValue());
     } catch (DataRepoClientException ex) {
@@ -0,0 +1,52 @@
+package bio.terra.command;
+
+import bio.terra.context.Login;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.http.HttpTransportOptions;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageOptions;
+import java.io.IOException;
+
+/**
+ * StorageClient holds the one GCS client of the process. It is built on first use and shared by
+ * every download, so later objects reuse the HTTP transport and its warm connections instead of
+ * paying client construction and TLS setup each time.
+ *
+ * <p>The client does not hold a copy of the access token. Its credentials ask {@link Login} for the
+ * token whenever the client decides to refresh, so a long download keeps working across token
+ * expiry.
+ */
+public final class StorageClient {
+  private static Storage storage;
+
+  private StorageClient() {}
+
+  public static synchronized Storage get() {
+    if (storage == null) {
+      HttpTransport transport = new NetHttpTransport();
+      storage =
+          StorageOptions.newBuilder()
+              .setCredentials(new LoginCredentials())
+              .setTransportOptions(
+                  HttpTransportOptions.newBuilder()
+                      .setHttpTransportFactory(() -> transport)
+                      .build())
+              .build()
+              .getService();
+    }
+    return storage;
+  }
+
+  // Credentials that fetch the current token from Login on each refresh
+  private static final class LoginCredentials extends GoogleCredentials {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public AccessToken refreshAccessToken() throws IOException {
+      return Login.refreshAccessToken();
+    }
+  }
+}
@@ -1,34 +1,106 @@
 package bio.terra.command;
 
-import bio.terra.context.Login;
-import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.util.IOUtils;
-import com.google.auth.oauth2.AccessToken;
-import com.google.auth.oauth2.GoogleCredentials;
+import bio.terra.datarepo.model.FileModel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageOptions;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.nio.channels.Channels;
-import java.util.Date;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import org.apache.commons.lang3.StringUtils;
 
 public final class StreamFile {
 
   private StreamFile() {}
 
-  public static void streamFile(String gspath) {
-    Credential userCredential = Login.getUserCredential();
-    String accessToken = userCredential.getAccessToken();
-    Date expirationTime = new Date(userCredential.getExpirationTimeMilliseconds());
+  /**
+   * Copy a data repo file to stdout or to a local file, reading ranges of it in parallel. The
+   * bytes are checked against the file's checksum as they go by; on a mismatch an output file is
+   * removed and we exit with an error. Bytes already sent to stdout cannot be recalled, but the
+   * exit status tells the consumer not to trust them.
+   *
+   * @param fileModel file to copy
+   * @param parallelism number of ranges to read at once
+   * @param chunkSize bytes in each range
+   * @param outputPath local file to write; null for stdout
+   * @param verbose report the transfer rate on stderr
+   */
+  public static void streamFile(
+      FileModel fileModel, int parallelism, int chunkSize, String outputPath, boolean verbose) {
+    Storage storage = StorageClient.get();
+    String gspath = fileModel.getFileDetail().getAccessUrl();
+    BlobId blobId = parseGsPath(gspath);
 
-    Storage storage =
-        StorageOptions.newBuilder()
-            .setCredentials(GoogleCredentials.create(new AccessToken(accessToken, expirationTime)))
-            .build()
-            .getService();
+    Long size = fileModel.getSize();
+    if (size == null) {
+      Blob blob = storage.get(blobId);
+      if (blob == null) {
+        throw new IllegalArgumentException("Object not found: '" + gspath + "'");
+      }
+      size = blob.getSize();
+    }
+    RangedDownload download =
+        FileChecksums.requestVerification(
+            RangedDownload.forBlob(storage, blobId, size)
+                .parallelism(parallelism)
+                .chunkSize(chunkSize),
+            fileModel);
+
+    long startNanos = System.nanoTime();
+    try {
+      if (outputPath == null) {
+        System.out.flush();
+        download.toChannel(stdoutChannel());
+      } else {
+        try (FileChannel out =
+            FileChannel.open(
+                Paths.get(outputPath),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+          download.toFile(out);
+        }
+      }
+    } catch (IOException ex) {
+      throw new IllegalArgumentException("Caught IO exception: " + ex.getMessage());
+    }
+
+    String mismatch = FileChecksums.findMismatch(download, fileModel);
+    if (mismatch != null) {
+      if (outputPath != null) {
+        try {
+          Files.deleteIfExists(Paths.get(outputPath));
+        } catch (IOException ex) {
+          // Report the mismatch, which is the real problem
+        }
+      }
+      CommandUtils.printErrorAndExit(
+          "Checksum error reading " + fileModel.getPath() + ": " + mismatch);
+    }
 
+    if (verbose) {
+      double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+      System.err.printf(
+          "%d bytes in %.2f seconds: %.1f MiB/s%n",
+          download.getSize(), seconds, download.getSize() / seconds / (1 << 20));
+    }
+  }
+
+  /**
+   * Parse a gs:// path into a blob id.
+   *
+   * @param gspath gs://bucket/object
+   * @return blob id
+   */
+  static BlobId parseGsPath(String gspath) {
     URI sourceUri = URI.create(gspath);
     if (!StringUtils.equals(sourceUri.getScheme(), "gs")) {
       throw new IllegalArgumentException("Source path is not a gs path: '" + gspath + "'");
@@ -37,13 +109,19 @@ public final class StreamFile {
       throw new IllegalArgumentException(
           "Source path must not have a port specified: '" + gspath + "'");
     }
-    String sourceBucket = sourceUri.getAuthority();
-    String sourcePath = StringUtils.removeStart(sourceUri.getPath(), "/");
+    return BlobId.of(sourceUri.getAuthority(), StringUtils.removeStart(sourceUri.getPath(), "/"));
+  }
 
-    try (InputStream input = Channels.newInputStream(storage.reader(sourceBucket, sourcePath))) {
-      IOUtils.copy(input, System.out);
-    } catch (IOException ex) {
-      throw new IllegalArgumentException("Caught IO exception: " + ex.getMessage());
+  // Channel on file descriptor 1, so direct buffers are written without going through the
+  // PrintStream and its heap copies. It is not closed; that would close stdout.
+  @SuppressFBWarnings(
+      value = {"OBL_UNSATISFIED_OBLIGATION", "OS_OPEN_STREAM"},
+      justification = "stdout stays open for the life of the process")
+  private static WritableByteChannel stdoutChannel() {
+    if (CommandUtils.isEmbedded()) {
+      // System.out may be redirected away from the process's stdout
+      return Channels.newChannel(System.out);
     }
+    return new FileOutputStream(FileDescriptor.out).getChannel();
   }
 }
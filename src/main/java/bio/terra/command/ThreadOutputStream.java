@@ -0,0 +1,52 @@
+package bio.terra.command;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * ThreadOutputStream sends each thread's writes to the stream that thread has claimed, and writes
+ * from other threads to a default stream. Installed behind System.out and System.err, it keeps the
+ * output of commands running in parallel apart. Output from threads a command starts itself goes
+ * to the default stream.
+ */
+final class ThreadOutputStream extends OutputStream {
+  private final OutputStream defaultStream;
+  private final ThreadLocal<OutputStream> threadStream = new ThreadLocal<>();
+
+  ThreadOutputStream(OutputStream defaultStream) {
+    this.defaultStream = defaultStream;
+  }
+
+  /**
+   * Send this thread's writes to a stream until {@link #release()}.
+   *
+   * @param stream stream for this thread's output
+   */
+  void capture(OutputStream stream) {
+    threadStream.set(stream);
+  }
+
+  void release() {
+    threadStream.remove();
+  }
+
+  private OutputStream target() {
+    OutputStream stream = threadStream.get();
+    return (stream == null) ? defaultStream : stream;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    target().write(b);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    target().write(bytes, offset, length);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    target().flush();
+  }
+}
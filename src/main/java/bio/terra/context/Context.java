@@ -28,7 +28,7 @@ public final class Context {
     getContext();
   }
 
-  public static Context getInstance() {
+  public static synchronized Context getInstance() {
     if (theContext == null) {
       theContext = new Context();
     }
@@ -59,6 +59,12 @@ public final class Context {
     }
   }
 
+  /** Read the context file again, picking up changes made by other jadecli processes. */
+  public void reload() {
+    properties = new Properties();
+    getContext();
+  }
+
   // -- accessors --
 
   public String getContextItem(ContextEnum contextEnum) {
@@ -6,7 +6,13 @@ public enum ContextEnum {
   // TODO: remove this, I think
   //  PROJECT_ID("projectid", "broad-jade-dev"),
   AUTH_TYPE("authtype", "user"), // or sa
-  AUTH_KEY_FILE("authkeyfile", "");
+  AUTH_KEY_FILE("authkeyfile", ""),
+  JOB_POLL_MAX_MS("jobpollmaxms", "5000"),
+  NAME_CACHE_TTL_SECONDS("namecachettl", "3600"), // 0 disables the name cache
+  WALK_CONCURRENCY("walkthreads", "8"), // parallel enumerations for dr list -R and dr tree
+  DOWNLOAD_THREADS("downloadthreads", "4"), // concurrent ranged reads per file download
+  DOWNLOAD_CHUNK_MB("downloadchunkmb", "8"), // size of each ranged read
+  HTTP_MAX_CONNECTIONS("httpmaxconnections", "16"); // pooled connections to the data repo
 
   private final String key;
   private final String defaultValue;
@@ -0,0 +1,136 @@
+package bio.terra.context;
+
+import bio.terra.datarepo.model.BulkLoadFileResultModel;
+import bio.terra.datarepo.model.BulkLoadFileState;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * LoadJournal is the checkpoint record of a bulk file load. It is an append-only file of JSON lines
+ * under ~/.jadecli/loadjournal, named by the load tag, holding one BulkLoadFileResultModel per
+ * file. Results are appended and flushed as each array job finishes, so if the CLI dies part way
+ * through, the journal still says which files made it.
+ *
+ * <p>A resumed load reads the journal and skips the files whose latest result is SUCCEEDED. Files
+ * are identified by their target path, which is unique within a dataset. A line cut short by a
+ * crash is ignored.
+ */
+public final class LoadJournal implements Closeable {
+  private static final String JOURNAL_DIRECTORY = ".jadecli/loadjournal";
+  private static final String JOURNAL_SUFFIX = ".jsonl";
+
+  private static final ObjectMapper objectMapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private final File journalFile;
+  private BufferedWriter writer;
+
+  LoadJournal(File directory, String loadTag) {
+    String fileName = loadTag.replaceAll("[^A-Za-z0-9._-]", "_") + JOURNAL_SUFFIX;
+    this.journalFile = new File(directory, fileName);
+  }
+
+  /**
+   * Get the journal for a load tag. The file is not touched until it is read or appended to.
+   *
+   * @param loadTag load tag of the bulk load
+   * @return the journal
+   */
+  public static LoadJournal forLoadTag(String loadTag) {
+    return new LoadJournal(new File(System.getProperty("user.home"), JOURNAL_DIRECTORY), loadTag);
+  }
+
+  public File getJournalFile() {
+    return journalFile;
+  }
+
+  /**
+   * Read the target paths of the files that have been loaded. A file that failed and later
+   * succeeded counts as loaded; one that succeeded and later failed does not.
+   *
+   * @return target paths whose latest result is SUCCEEDED; empty if there is no journal
+   */
+  public Set<String> readSucceededTargets() {
+    Set<String> succeeded = new HashSet<>();
+    try (BufferedReader reader =
+        Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        BulkLoadFileResultModel result;
+        try {
+          result = objectMapper.readValue(line, BulkLoadFileResultModel.class);
+        } catch (IOException ex) {
+          // Partial last line from a load that died mid-write
+          continue;
+        }
+        if (result.getTargetPath() == null) {
+          continue;
+        }
+        if (result.getState() == BulkLoadFileState.SUCCEEDED) {
+          succeeded.add(result.getTargetPath());
+        } else {
+          succeeded.remove(result.getTargetPath());
+        }
+      }
+    } catch (NoSuchFileException ex) {
+      // Nothing loaded yet
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Error reading load journal " + journalFile, ex);
+    }
+    return succeeded;
+  }
+
+  /**
+   * Append results to the journal and flush them to the file.
+   *
+   * @param results file results from one array job
+   */
+  public synchronized void append(List<BulkLoadFileResultModel> results) {
+    try {
+      if (writer == null) {
+        File directory = journalFile.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+          throw new IOException("Unable to create directory " + directory);
+        }
+        writer =
+            Files.newBufferedWriter(
+                journalFile.toPath(),
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+      }
+      for (BulkLoadFileResultModel result : results) {
+        writer.write(objectMapper.writeValueAsString(result));
+        writer.newLine();
+      }
+      writer.flush();
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Error writing load journal " + journalFile, ex);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException ex) {
+        // Everything was flushed as it was appended
+      }
+      writer = null;
+    }
+  }
+}
@@ -3,7 +3,6 @@ package bio.terra.context;
 import static bio.terra.context.ContextEnum.AUTH_KEY_FILE;
 
 import bio.terra.command.CommandUtils;
-import bio.terra.datarepo.client.Configuration;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.auth.oauth2.TokenResponseException;
 import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
@@ -25,6 +24,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 
@@ -34,7 +34,6 @@ public final class Login {
   private static ContextAuthTypeEnum authType;
   private static GoogleClientSecrets clientSecrets;
   private static final String CLIENT_SECRET_FILE = "jadecli_client_secret.json";
-  private static final String APPLICATION_NAME = "jadecli";
   private static final List<String> userLoginScopes =
       Arrays.asList(
           "openid",
@@ -44,33 +43,187 @@ public final class Login {
           "https://www.googleapis.com/auth/devstorage.read_only",
           "https://www.googleapis.com/auth/bigquery.readonly");
 
+  // Tokens this close to expiring are refreshed in the background while they are still used.
+  // Matches the margin the google auth library uses, so its clients do not ask again for a token
+  // we just gave them.
+  private static final long REFRESH_MARGIN_MILLIS = 5 * 60 * 1000;
+  // Tokens with less than this left are not used; we wait for a refresh instead
+  private static final long MIN_REMAINING_MILLIS = 60 * 1000;
+
+  // The token this process is using and the login it belongs to. Guarded by Login.class.
+  private static String accessToken;
+  private static long accessTokenExpiresMillis;
+  private static String currentLogin;
+  private static boolean backgroundRefreshRunning;
+  // The login the credentials below belong to. Guarded by refreshLock, as are the credentials.
+  private static String credentialLogin;
+
+  // Held while talking to the auth servers. Taken before Login.class, never while holding it, so
+  // callers with a good token are not held up by a refresh.
+  private static final Object refreshLock = new Object();
+
   private Login() {}
 
+  /**
+   * Make sure this process has a usable access token, logging in if it does not. The first call
+   * tries the on-disk token cache before setting up the OAuth flow.
+   */
   public static void requiresLogin() {
-    authType = getAuthType();
-    if (authType == ContextAuthTypeEnum.AUTH_TYPE_USER) {
-      authorizeUser();
-    } else {
-      authorizeSA();
+    getCurrentAccessToken();
+  }
+
+  /**
+   * Get a usable access token. Cheap when the token held is good, so it is called on every data
+   * repo request: the token is kept for the life of the process. A token near expiry is refreshed
+   * in the background; an expired one is refreshed before returning.
+   *
+   * @return access token; null if we could not log in
+   */
+  public static String getCurrentAccessToken() {
+    boolean refreshNow;
+    boolean refreshInBackground = false;
+    synchronized (Login.class) {
+      authType = getAuthType();
+      String login = describeLogin();
+      if (!StringUtils.equals(login, currentLogin)) {
+        // First call in this process, or the login changed under us
+        currentLogin = login;
+        TokenCache.Entry cached = getTokenCache().load(login);
+        accessToken = (cached == null) ? null : cached.getToken();
+        accessTokenExpiresMillis = (cached == null) ? 0 : cached.getExpiresMillis();
+      }
+
+      long remaining = accessTokenExpiresMillis - System.currentTimeMillis();
+      refreshNow = (accessToken == null || remaining < MIN_REMAINING_MILLIS);
+      if (!refreshNow && remaining < REFRESH_MARGIN_MILLIS && !backgroundRefreshRunning) {
+        backgroundRefreshRunning = true;
+        refreshInBackground = true;
+      }
+    }
+
+    if (refreshNow) {
+      refresh(MIN_REMAINING_MILLIS);
+    } else if (refreshInBackground) {
+      Thread thread = new Thread(Login::backgroundRefresh, "token-refresh");
+      thread.setDaemon(true);
+      thread.start();
     }
 
-    // Set the data repo api client access
-    Configuration.getDefaultApiClient()
-        .setUserAgent(APPLICATION_NAME)
-        .setBasePath(Context.getInstance().getContextItem(ContextEnum.BASE_PATH))
-        .setAccessToken(getAccessToken());
+    synchronized (Login.class) {
+      return accessToken;
+    }
+  }
+
+  // The token as it is, without checking expiry
+  public static synchronized String getAccessToken() {
+    return accessToken;
+  }
+
+  /**
+   * Get a current access token and its expiration, refreshing it if it is close to expiring. Logs
+   * in first if this process has not. Used by clients that manage their own refresh, such as the
+   * storage client.
+   *
+   * @return access token
+   * @throws IOException if we could not get a token
+   */
+  public static AccessToken refreshAccessToken() throws IOException {
+    requiresLogin();
+    refresh(REFRESH_MARGIN_MILLIS);
+    synchronized (Login.class) {
+      if (accessToken == null) {
+        throw new IOException("Not logged in");
+      }
+      return new AccessToken(accessToken, new Date(accessTokenExpiresMillis));
+    }
+  }
+
+  /** Forget the token this process holds and the cached one. The next use logs in again. */
+  public static void clearAccessToken() {
+    synchronized (refreshLock) {
+      userCredential = null;
+      saCredential = null;
+      credentialLogin = null;
+      synchronized (Login.class) {
+        accessToken = null;
+        accessTokenExpiresMillis = 0;
+        currentLogin = null;
+      }
+      getTokenCache().clear();
+    }
   }
 
-  public static String getAccessToken() {
+  private static void backgroundRefresh() {
+    try {
+      refresh(REFRESH_MARGIN_MILLIS);
+    } finally {
+      synchronized (Login.class) {
+        backgroundRefreshRunning = false;
+      }
+    }
+  }
+
+  // Get a new token from the auth servers unless another thread already got one with at least
+  // minRemainingMillis left. Saves the new token in the token cache.
+  private static void refresh(long minRemainingMillis) {
+    synchronized (refreshLock) {
+      ContextAuthTypeEnum refreshAuthType;
+      String login;
+      synchronized (Login.class) {
+        if (accessToken != null
+            && accessTokenExpiresMillis - System.currentTimeMillis() >= minRemainingMillis) {
+          return;
+        }
+        refreshAuthType = authType;
+        login = currentLogin;
+      }
+      if (!StringUtils.equals(login, credentialLogin)) {
+        userCredential = null;
+        saCredential = null;
+        credentialLogin = login;
+      }
+
+      String token = null;
+      long expires = 0;
+      if (refreshAuthType == ContextAuthTypeEnum.AUTH_TYPE_USER) {
+        authorizeUser();
+        if (userCredential != null && userCredential.getExpirationTimeMilliseconds() != null) {
+          token = userCredential.getAccessToken();
+          expires = userCredential.getExpirationTimeMilliseconds();
+        }
+      } else {
+        authorizeSA();
+        AccessToken saToken = (saCredential == null) ? null : saCredential.getAccessToken();
+        if (saToken != null && saToken.getExpirationTime() != null) {
+          token = saToken.getTokenValue();
+          expires = saToken.getExpirationTime().getTime();
+        }
+      }
+      if (token == null) {
+        return;
+      }
+
+      synchronized (Login.class) {
+        if (!StringUtils.equals(login, currentLogin)) {
+          return; // the login changed while we were refreshing
+        }
+        accessToken = token;
+        accessTokenExpiresMillis = expires;
+      }
+      getTokenCache().save(login, new TokenCache.Entry(token, expires));
+    }
+  }
+
+  // The auth type and, for a service account, the key file: a token is only good for its login
+  private static String describeLogin() {
     if (authType == ContextAuthTypeEnum.AUTH_TYPE_USER) {
-      return userCredential.getAccessToken();
+      return authType.getContextValue();
     }
-    AccessToken accessToken = saCredential.getAccessToken();
-    return accessToken.getTokenValue();
+    return authType.getContextValue() + " " + Context.getInstance().getContextItem(AUTH_KEY_FILE);
   }
 
-  public static Credential getUserCredential() {
-    return userCredential;
+  private static TokenCache getTokenCache() {
+    return new TokenCache(getDataStoreDir());
   }
 
   // Authenticate using service account credentials
@@ -82,9 +235,12 @@ public final class Login {
     }
 
     try {
-      saCredential =
-          GoogleCredentials.fromStream(new FileInputStream(keyFile)).createScoped(userLoginScopes);
-      saCredential.refreshIfExpired();
+      if (saCredential == null) {
+        saCredential =
+            GoogleCredentials.fromStream(new FileInputStream(keyFile))
+                .createScoped(userLoginScopes);
+      }
+      saCredential.refresh();
     } catch (IOException e) {
       CommandUtils.printErrorAndExit("Error processing key file: " + keyFile);
     }
@@ -137,7 +293,7 @@ public final class Login {
         new AuthorizationCodeInstalledApp(flow, new LocalServerReceiver()).authorize("user");
 
     Long expireSeconds = userCredential.getExpiresInSeconds();
-    if (expireSeconds == null || expireSeconds < 30) {
+    if (expireSeconds == null || expireSeconds * 1000 < REFRESH_MARGIN_MILLIS) {
       if (!userCredential.refreshToken()) {
         // if we fail to get a refresh token, what should we do?
         System.err.println("Oh no! Failed to refresh token!");
@@ -167,6 +323,7 @@ public final class Login {
   }
 
   public static boolean clearCredentialDirectory() {
+    clearAccessToken();
     File dir = getDataStoreDir();
     return cleanDirectory(dir);
   }
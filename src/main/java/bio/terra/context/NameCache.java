@@ -0,0 +1,246 @@
+package bio.terra.context;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * NameCache remembers the summary objects found by name lookups so that later CLI invocations can
+ * skip the enumerate call. Entries are keyed by the data repo base path, the object type, and the
+ * name, and they expire after the {@link ContextEnum#NAME_CACHE_TTL_SECONDS} setting. A TTL of
+ * zero turns the cache off.
+ *
+ * <p>The cache is a properties file under ~/.jadecli. Several CLI processes may run at once, so
+ * every update takes a file lock, re-reads the file, and replaces it with an atomic rename. Reads
+ * do not lock; they always see a complete file.
+ *
+ * <p>Cache failures are never fatal. If the file cannot be read or written, lookups simply go to
+ * the data repo.
+ */
+public final class NameCache {
+  private static final String CACHE_DIRECTORY = ".jadecli";
+  private static final String CACHE_FILE_NAME = "namecache.properties";
+  private static final String LOCK_FILE_NAME = "namecache.lock";
+  private static final String VALUE_SEPARATOR = "|";
+
+  private static final ObjectMapper objectMapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private static NameCache theCache;
+
+  private final File cacheFile;
+  private final File lockFile;
+  private final Supplier<String> basePath;
+  private final LongSupplier ttlMillis;
+  // Keys this process resolved from the cache; suspect if a later call gets a 404
+  private final Set<String> servedKeys = new HashSet<>();
+
+  /** Kinds of objects we look up by name */
+  public enum ObjectType {
+    DATASET("dataset"),
+    SNAPSHOT("snapshot"),
+    PROFILE("profile");
+
+    private final String value;
+
+    ObjectType(String value) {
+      this.value = value;
+    }
+
+    public String getValue() {
+      return value;
+    }
+  }
+
+  NameCache(File directory) {
+    this(
+        directory,
+        () -> Context.getInstance().getContextItem(ContextEnum.BASE_PATH),
+        NameCache::getContextTtlMillis);
+  }
+
+  // Tests supply the base path and TTL instead of reading them from the session context
+  NameCache(File directory, Supplier<String> basePath, LongSupplier ttlMillis) {
+    this.cacheFile = new File(directory, CACHE_FILE_NAME);
+    this.lockFile = new File(directory, LOCK_FILE_NAME);
+    this.basePath = basePath;
+    this.ttlMillis = ttlMillis;
+  }
+
+  public static synchronized NameCache getInstance() {
+    if (theCache == null) {
+      theCache = new NameCache(new File(System.getProperty("user.home"), CACHE_DIRECTORY));
+    }
+    return theCache;
+  }
+
+  /**
+   * Get a cached object.
+   *
+   * @param type kind of object
+   * @param name name of the object
+   * @param clazz class of the cached object
+   * @param <T> type of the cached object
+   * @return the cached object; null if there is no unexpired entry
+   */
+  public synchronized <T> T get(ObjectType type, String name, Class<T> clazz) {
+    if (ttlMillis.getAsLong() <= 0) {
+      return null;
+    }
+    String key = makeKey(type, name);
+    String value = readProperties().getProperty(key);
+    if (value == null) {
+      return null;
+    }
+
+    long expires = NumberUtils.toLong(StringUtils.substringBefore(value, VALUE_SEPARATOR), 0);
+    if (expires < System.currentTimeMillis()) {
+      return null;
+    }
+    try {
+      T cached = objectMapper.readValue(StringUtils.substringAfter(value, VALUE_SEPARATOR), clazz);
+      servedKeys.add(key);
+      return cached;
+    } catch (IOException ex) {
+      // A bad entry is the same as a miss; the next put replaces it
+      return null;
+    }
+  }
+
+  /**
+   * Remember an object found by name.
+   *
+   * @param type kind of object
+   * @param name name of the object
+   * @param object the object to cache; serialized as JSON
+   */
+  public synchronized void put(ObjectType type, String name, Object object) {
+    long ttl = ttlMillis.getAsLong();
+    if (ttl <= 0) {
+      return;
+    }
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(object);
+    } catch (IOException ex) {
+      return;
+    }
+    String value = (System.currentTimeMillis() + ttl) + VALUE_SEPARATOR + json;
+    update(properties -> properties.setProperty(makeKey(type, name), value));
+  }
+
+  /**
+   * Forget an object. Used when an object is created or deleted.
+   *
+   * @param type kind of object
+   * @param name name of the object
+   */
+  public synchronized void invalidate(ObjectType type, String name) {
+    String key = makeKey(type, name);
+    servedKeys.remove(key);
+    update(properties -> properties.remove(key));
+  }
+
+  /**
+   * Forget every entry this process resolved from the cache. Called when a data repo call gets a
+   * 404, since the id we used may belong to a deleted object.
+   */
+  public synchronized void invalidateServed() {
+    if (servedKeys.isEmpty()) {
+      return;
+    }
+    Set<String> keys = new HashSet<>(servedKeys);
+    servedKeys.clear();
+    update(properties -> properties.keySet().removeAll(keys));
+  }
+
+  // -- implementation --
+
+  private static long getContextTtlMillis() {
+    String ttl = Context.getInstance().getContextItem(ContextEnum.NAME_CACHE_TTL_SECONDS);
+    long seconds =
+        NumberUtils.toLong(
+            ttl, NumberUtils.toLong(ContextEnum.NAME_CACHE_TTL_SECONDS.getDefaultValue()));
+    return seconds * 1000;
+  }
+
+  private String makeKey(ObjectType type, String name) {
+    return StringUtils.join(new String[] {basePath.get(), type.getValue(), name}, ' ');
+  }
+
+  @SuppressFBWarnings(
+      value = "OBL_UNSATISFIED_OBLIGATION",
+      justification = "Spotbugs bug: not properly understanding the resource try")
+  private Properties readProperties() {
+    Properties properties = new Properties();
+    try (FileInputStream fileInputStream = new FileInputStream(cacheFile)) {
+      properties.load(fileInputStream);
+    } catch (FileNotFoundException ex) {
+      // No cache yet
+    } catch (IOException | IllegalArgumentException ex) {
+      // Unreadable cache; treat it as empty and let the next update replace it
+      properties.clear();
+    }
+    return properties;
+  }
+
+  // Apply a change under the cross-process lock: re-read the file so we do not lose updates from
+  // other processes, drop expired entries, then write a temp file and rename it into place.
+  private void update(Consumer<Properties> change) {
+    File directory = cacheFile.getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      return;
+    }
+    try (FileChannel lockChannel =
+            FileChannel.open(
+                lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock = lockChannel.lock()) {
+      Properties properties = readProperties();
+      long now = System.currentTimeMillis();
+      properties
+          .entrySet()
+          .removeIf(
+              entry -> {
+                String expires =
+                    StringUtils.substringBefore((String) entry.getValue(), VALUE_SEPARATOR);
+                return NumberUtils.toLong(expires, 0) < now;
+              });
+      change.accept(properties);
+
+      File tempFile = File.createTempFile("namecache", ".tmp", directory);
+      try {
+        try (OutputStream output = new FileOutputStream(tempFile)) {
+          properties.store(output, null);
+        }
+        Files.move(
+            tempFile.toPath(),
+            cacheFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    } catch (IOException ex) {
+      // The cache is an optimization; failing to update it is not an error
+    }
+  }
+}
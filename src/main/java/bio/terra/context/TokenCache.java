@@ -0,0 +1,135 @@
+package bio.terra.context;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * TokenCache keeps the last access token and its expiry on disk, so a new CLI process can use it
+ * without setting up the OAuth flow. The token is only good for the login it came from: the entry
+ * records the auth type and key file, and a lookup under a different login misses.
+ *
+ * <p>The file lives in the credential directory next to the stored refresh token, so logging out
+ * removes it too. It is readable only by the owner where the file system allows. Failures to read
+ * or write the cache are ignored; the caller simply logs in the slow way.
+ */
+final class TokenCache {
+  private static final String CACHE_FILE_NAME = "accesstoken.properties";
+  private static final String KEY_LOGIN = "login";
+  private static final String KEY_TOKEN = "token";
+  private static final String KEY_EXPIRES = "expires";
+
+  private final File cacheFile;
+
+  /** A cached token */
+  static final class Entry {
+    private final String token;
+    private final long expiresMillis;
+
+    Entry(String token, long expiresMillis) {
+      this.token = token;
+      this.expiresMillis = expiresMillis;
+    }
+
+    String getToken() {
+      return token;
+    }
+
+    long getExpiresMillis() {
+      return expiresMillis;
+    }
+  }
+
+  TokenCache(File directory) {
+    this.cacheFile = new File(directory, CACHE_FILE_NAME);
+  }
+
+  /**
+   * Read the cached token.
+   *
+   * @param login identifies the login: auth type and key file
+   * @return the entry; null if there is none for this login
+   */
+  @SuppressFBWarnings(
+      value = "OBL_UNSATISFIED_OBLIGATION",
+      justification = "Spotbugs bug: not properly understanding the resource try")
+  Entry load(String login) {
+    Properties properties = new Properties();
+    try (FileInputStream input = new FileInputStream(cacheFile)) {
+      properties.load(input);
+    } catch (IOException | IllegalArgumentException ex) {
+      // No cache yet, or an unreadable one
+      return null;
+    }
+
+    String token = properties.getProperty(KEY_TOKEN);
+    long expires = NumberUtils.toLong(properties.getProperty(KEY_EXPIRES), 0);
+    if (!StringUtils.equals(login, properties.getProperty(KEY_LOGIN)) || token == null) {
+      return null;
+    }
+    return new Entry(token, expires);
+  }
+
+  /**
+   * Replace the cached token. The file is written to a temp file and renamed, so a concurrent
+   * reader sees either the old token or the new one.
+   *
+   * @param login identifies the login
+   * @param entry token to cache
+   */
+  void save(String login, Entry entry) {
+    File directory = cacheFile.getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      return;
+    }
+    Properties properties = new Properties();
+    properties.setProperty(KEY_LOGIN, login);
+    properties.setProperty(KEY_TOKEN, entry.getToken());
+    properties.setProperty(KEY_EXPIRES, Long.toString(entry.getExpiresMillis()));
+
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile("accesstoken", ".tmp", directory);
+      try {
+        Files.setPosixFilePermissions(
+            tempFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+      } catch (UnsupportedOperationException ex) {
+        // Not a POSIX file system; rely on the directory permissions
+      }
+      try (OutputStream output = Files.newOutputStream(tempFile.toPath())) {
+        properties.store(output, null);
+      }
+      Files.move(
+          tempFile.toPath(),
+          cacheFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      // The cache only saves time; the next process will log in the slow way
+    } finally {
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile.toPath());
+        } catch (IOException ex) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  void clear() {
+    try {
+      Files.deleteIfExists(cacheFile.toPath());
+    } catch (IOException ex) {
+      // A stale entry is replaced by the next save
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package bio.terra.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DaemonClient hands a command to a running {@link DaemonServer} and relays its output and exit
+ * status. This is the whole of what a jadecli process does when a daemon is running, so it
+ * touches none of the data repo, Google or Jersey classes.
+ */
+public final class DaemonClient {
+  private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+  // Commands that always run in the client process
+  private static final List<String> LOCAL_COMMANDS = Arrays.asList("daemon", "shell");
+
+  private DaemonClient() {}
+
+  /**
+   * Run a command in the daemon, if one is running for the current directory. Daemon commands, the
+   * shell and commands that read stdin (an argument of "-") are not forwarded.
+   *
+   * @param args command line
+   * @return the command's exit status; null if the command was not forwarded and should run here
+   */
+  public static Integer forward(String[] args) {
+    return forward(args, DaemonFile.defaultLocation(), System.out, System.err);
+  }
+
+  static Integer forward(String[] args, File daemonFileLocation, PrintStream out, PrintStream err) {
+    if (args.length > 0 && LOCAL_COMMANDS.contains(args[0])) {
+      return null;
+    }
+    if (Arrays.asList(args).contains("-")) {
+      return null;
+    }
+    DaemonFile daemonFile = DaemonFile.read(daemonFileLocation);
+    if (daemonFile == null || !daemonFile.getDirectory().equals(DaemonFile.currentDirectory())) {
+      return null;
+    }
+
+    Socket socket;
+    try {
+      socket = connect(daemonFile);
+    } catch (IOException ex) {
+      return null; // a stale daemon file; the daemon is gone
+    }
+    try (Socket closer = socket) {
+      DataOutputStream request = startRequest(closer, daemonFile, DaemonServer.OP_RUN);
+      request.writeInt(args.length);
+      for (String arg : args) {
+        request.writeUTF(arg);
+      }
+      request.flush();
+      return readReply(closer, out, err);
+    } catch (IOException ex) {
+      // The command may have partly run, so it is not safe to run it again here
+      err.println("Lost the connection to the jadecli daemon: " + ex.getMessage());
+      return 1;
+    }
+  }
+
+  /**
+   * Print the status of the running daemon.
+   *
+   * @return false if no daemon is running
+   */
+  public static boolean status() {
+    return sendOperation(DaemonFile.defaultLocation(), DaemonServer.OP_STATUS);
+  }
+
+  /**
+   * Ask the running daemon to stop.
+   *
+   * @return false if no daemon is running
+   */
+  public static boolean stop() {
+    return stop(DaemonFile.defaultLocation());
+  }
+
+  static boolean stop(File daemonFileLocation) {
+    return sendOperation(daemonFileLocation, DaemonServer.OP_STOP);
+  }
+
+  private static boolean sendOperation(File daemonFileLocation, String operation) {
+    DaemonFile daemonFile = DaemonFile.read(daemonFileLocation);
+    if (daemonFile == null) {
+      return false;
+    }
+    try (Socket socket = connect(daemonFile)) {
+      startRequest(socket, daemonFile, operation).flush();
+      readReply(socket, System.out, System.err);
+      return true;
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+  private static Socket connect(DaemonFile daemonFile) throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.setTcpNoDelay(true);
+      socket.connect(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), daemonFile.getPort()),
+          CONNECT_TIMEOUT_MILLIS);
+    } catch (IOException ex) {
+      socket.close();
+      throw ex;
+    }
+    return socket;
+  }
+
+  private static DataOutputStream startRequest(
+      Socket socket, DaemonFile daemonFile, String operation) throws IOException {
+    DataOutputStream request =
+        new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    request.writeUTF(daemonFile.getToken());
+    request.writeUTF(operation);
+    return request;
+  }
+
+  // Copy output frames to out and err until the exit frame
+  private static int readReply(Socket socket, PrintStream out, PrintStream err)
+      throws IOException {
+    DataInputStream reply = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    byte[] buffer = new byte[8192];
+    while (true) {
+      int frameType = reply.readByte();
+      if (frameType == DaemonServer.FRAME_EXIT) {
+        out.flush();
+        return reply.readInt();
+      }
+      PrintStream target = (frameType == DaemonServer.FRAME_STDERR) ? err : out;
+      int remaining = reply.readInt();
+      while (remaining > 0) {
+        int count = reply.read(buffer, 0, Math.min(remaining, buffer.length));
+        if (count < 0) {
+          throw new IOException("Daemon reply ended early");
+        }
+        target.write(buffer, 0, count);
+        remaining -= count;
+      }
+      if (target == err) {
+        err.flush();
+      }
+    }
+  }
+}
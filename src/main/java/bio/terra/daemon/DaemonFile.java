@@ -0,0 +1,139 @@
+package bio.terra.daemon;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * DaemonFile tells clients where the daemon is listening. It holds the port, the secret token a
+ * client must present, and the directory the daemon runs in. It is readable only by the owner where
+ * the file system allows, so only the owner's processes can learn the token.
+ */
+final class DaemonFile {
+  private static final String DAEMON_FILE_PATH = ".jadecli/daemon.properties";
+  private static final String KEY_PORT = "port";
+  private static final String KEY_TOKEN = "token";
+  private static final String KEY_DIRECTORY = "directory";
+
+  private final int port;
+  private final String token;
+  private final String directory;
+
+  DaemonFile(int port, String token, String directory) {
+    this.port = port;
+    this.token = token;
+    this.directory = directory;
+  }
+
+  static File defaultLocation() {
+    return new File(System.getProperty("user.home"), DAEMON_FILE_PATH);
+  }
+
+  // Relative paths in a command are resolved against this, so the daemon only runs commands from
+  // clients in the same directory
+  static String currentDirectory() {
+    return Paths.get("").toAbsolutePath().normalize().toString();
+  }
+
+  int getPort() {
+    return port;
+  }
+
+  String getToken() {
+    return token;
+  }
+
+  String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Read the daemon file.
+   *
+   * @param location daemon file
+   * @return the file contents; null if there is no daemon file or it is malformed
+   */
+  @SuppressFBWarnings(
+      value = "OBL_UNSATISFIED_OBLIGATION",
+      justification = "Spotbugs bug: not properly understanding the resource try")
+  static DaemonFile read(File location) {
+    Properties properties = new Properties();
+    try (FileInputStream input = new FileInputStream(location)) {
+      properties.load(input);
+    } catch (IOException | IllegalArgumentException ex) {
+      return null;
+    }
+    int port = NumberUtils.toInt(properties.getProperty(KEY_PORT), 0);
+    String token = properties.getProperty(KEY_TOKEN);
+    String directory = properties.getProperty(KEY_DIRECTORY);
+    if (port <= 0 || StringUtils.isEmpty(token) || directory == null) {
+      return null;
+    }
+    return new DaemonFile(port, token, directory);
+  }
+
+  /**
+   * Write the daemon file, replacing any previous one. It is written to a temp file and renamed, so
+   * a client never reads a partial file.
+   *
+   * @param location daemon file
+   * @throws IOException if the file could not be written
+   */
+  void write(File location) throws IOException {
+    File directoryFile = location.getAbsoluteFile().getParentFile();
+    if (!directoryFile.isDirectory() && !directoryFile.mkdirs()) {
+      throw new IOException("Unable to create directory " + directoryFile.getPath());
+    }
+    Properties properties = new Properties();
+    properties.setProperty(KEY_PORT, Integer.toString(port));
+    properties.setProperty(KEY_TOKEN, token);
+    properties.setProperty(KEY_DIRECTORY, directory);
+
+    File tempFile = File.createTempFile("daemon", ".tmp", directoryFile);
+    try {
+      try {
+        Files.setPosixFilePermissions(
+            tempFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+      } catch (UnsupportedOperationException ex) {
+        // Not a POSIX file system; rely on the directory permissions
+      }
+      try (OutputStream output = Files.newOutputStream(tempFile.toPath())) {
+        properties.store(output, null);
+      }
+      Files.move(
+          tempFile.toPath(),
+          location.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile.toPath());
+    }
+  }
+
+  /**
+   * Remove the daemon file if it still belongs to the daemon with this token. A newer daemon may
+   * have replaced it.
+   *
+   * @param location daemon file
+   * @param token token of the daemon that is going away
+   */
+  static void delete(File location, String token) {
+    DaemonFile current = read(location);
+    if (current != null && StringUtils.equals(current.getToken(), token)) {
+      try {
+        Files.deleteIfExists(location.toPath());
+      } catch (IOException ex) {
+        // A stale file only costs clients a failed connect
+      }
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package bio.terra.daemon;
+
+import bio.terra.command.CommandUtils;
+import bio.terra.command.ExitException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.function.ToIntFunction;
+
+/**
+ * DaemonServer runs jadecli commands for {@link DaemonClient}s in one long-lived JVM. The JVM, the
+ * command syntax, the login, the data repo and storage clients and their connections all stay warm
+ * between commands, so a command costs only its own work.
+ *
+ * <p>The daemon listens on a loopback port. Clients find the port and a secret token in the daemon
+ * file; a connection that does not present the token is dropped. Commands run one at a time, with
+ * System.out and System.err redirected to the client, so a second client waits for the first
+ * command to finish.
+ *
+ * <p>The protocol is a request of token, operation and, for a run, the command arguments, all as
+ * DataOutput strings. The reply is a sequence of frames: a type byte followed, for output frames,
+ * by a length and that many bytes, or for the final exit frame, the exit status.
+ */
+public final class DaemonServer {
+  static final String OP_RUN = "run";
+  static final String OP_STATUS = "status";
+  static final String OP_STOP = "stop";
+  static final int FRAME_STDOUT = 1;
+  static final int FRAME_STDERR = 2;
+  static final int FRAME_EXIT = 3;
+
+  private static final int BACKLOG = 50;
+  // A client gets this long to send its request, so a stray connection cannot hang the daemon
+  private static final int REQUEST_TIMEOUT_MILLIS = 10000;
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+  private final ToIntFunction<String[]> runner;
+  private final File daemonFileLocation;
+  private final String token;
+  private final long startMillis;
+  private boolean stopping;
+  private long commandCount;
+
+  /**
+   * Construct a daemon.
+   *
+   * @param runner runs one command and returns its exit status
+   */
+  public DaemonServer(ToIntFunction<String[]> runner) {
+    this(runner, DaemonFile.defaultLocation());
+  }
+
+  DaemonServer(ToIntFunction<String[]> runner, File daemonFileLocation) {
+    this.runner = runner;
+    this.daemonFileLocation = daemonFileLocation;
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    this.token = new BigInteger(1, secret).toString(16);
+    this.startMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Serve commands until a client asks the daemon to stop.
+   *
+   * @throws IOException if the daemon could not listen or write its daemon file
+   */
+  public void serve() throws IOException {
+    String directory = DaemonFile.currentDirectory();
+    try (ServerSocket serverSocket =
+        new ServerSocket(0, BACKLOG, InetAddress.getLoopbackAddress())) {
+      new DaemonFile(serverSocket.getLocalPort(), token, directory).write(daemonFileLocation);
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(() -> DaemonFile.delete(daemonFileLocation, token)));
+      System.out.printf(
+          "jadecli daemon listening on port %d for commands run in %s%n",
+          serverSocket.getLocalPort(), directory);
+
+      CommandUtils.setEmbedded(true);
+      while (!stopping) {
+        try (Socket socket = serverSocket.accept()) {
+          handle(socket);
+        } catch (IOException ex) {
+          // The client went away; carry on with the next one
+          System.err.println("Daemon connection failed: " + ex.getMessage());
+        }
+      }
+    } finally {
+      CommandUtils.setEmbedded(false);
+      DaemonFile.delete(daemonFileLocation, token);
+    }
+  }
+
+  private void handle(Socket socket) throws IOException {
+    socket.setTcpNoDelay(true);
+    socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER_SIZE));
+
+    byte[] clientToken = in.readUTF().getBytes(StandardCharsets.UTF_8);
+    if (!MessageDigest.isEqual(clientToken, token.getBytes(StandardCharsets.UTF_8))) {
+      return; // not one of ours
+    }
+
+    int status = 0;
+    String operation = in.readUTF();
+    switch (operation) {
+      case OP_RUN:
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+          args[i] = in.readUTF();
+        }
+        socket.setSoTimeout(0);
+        status = run(args, out);
+        break;
+      case OP_STATUS:
+        writeText(
+            out,
+            String.format(
+                "jadecli daemon on port %d for commands run in %s: %d commands in %d seconds%n",
+                socket.getLocalPort(),
+                DaemonFile.currentDirectory(),
+                commandCount,
+                (System.currentTimeMillis() - startMillis) / 1000));
+        break;
+      case OP_STOP:
+        stopping = true;
+        writeText(out, String.format("jadecli daemon stopped%n"));
+        break;
+      default:
+        status = 1; // a client from some other version
+    }
+    out.writeByte(FRAME_EXIT);
+    out.writeInt(status);
+    out.flush();
+  }
+
+  // Run one command with its output sent to the client
+  private int run(String[] args, DataOutputStream out) {
+    PrintStream stdout = System.out;
+    PrintStream stderr = System.err;
+    InputStream stdin = System.in;
+    PrintStream clientOut = new PrintStream(new FrameOutputStream(out, FRAME_STDOUT), false);
+    PrintStream clientErr = new PrintStream(new FrameOutputStream(out, FRAME_STDERR), true);
+    System.setOut(clientOut);
+    System.setErr(clientErr);
+    // Clients do not forward their stdin
+    System.setIn(new ByteArrayInputStream(new byte[0]));
+    try {
+      commandCount++;
+      return runner.applyAsInt(args);
+    } catch (ExitException ex) {
+      return ex.getStatus();
+    } catch (RuntimeException ex) {
+      clientErr.println(ex.getMessage());
+      return 1;
+    } finally {
+      clientOut.flush();
+      clientErr.flush();
+      System.setOut(stdout);
+      System.setErr(stderr);
+      System.setIn(stdin);
+    }
+  }
+
+  private static void writeText(DataOutputStream out, String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    out.writeByte(FRAME_STDOUT);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  // Sends each write as one frame. Commands may write from several threads, so frames are
+  // written under the stream's lock.
+  private static final class FrameOutputStream extends OutputStream {
+    private final DataOutputStream out;
+    private final int frameType;
+
+    FrameOutputStream(DataOutputStream out, int frameType) {
+      this.out = out;
+      this.frameType = frameType;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return;
+      }
+      synchronized (out) {
+        out.writeByte(frameType);
+        out.writeInt(length);
+        out.write(bytes, offset, length);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (out) {
+        out.flush();
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package bio.terra.formatting;
+
+import bio.terra.datarepo.model.BulkLoadFileResultModel;
+import org.apache.commons.lang3.StringUtils;
+
+public class FormatBulkLoadFileResult extends TableFormatBase {
+  private static final String[] headers =
+      new String[] {"State", "Source", "Target", "File Id", "Error"};
+  private static final int[] lengths = new int[] {9, 20, 20, 36, 5};
+  private static final boolean[] computeLengths = new boolean[] {false, true, true, false, true};
+  private BulkLoadFileResultModel result;
+
+  public FormatBulkLoadFileResult(BulkLoadFileResultModel result) {
+    super(headers, lengths, computeLengths);
+    this.result = result;
+  }
+
+  public String getData(int index) {
+    switch (index) {
+      case 0:
+        return result.getState() == null ? StringUtils.EMPTY : result.getState().getValue();
+      case 1:
+        return result.getSourcePath();
+      case 2:
+        return result.getTargetPath();
+      case 3:
+        return StringUtils.defaultString(result.getFileId());
+      case 4:
+        return StringUtils.defaultString(result.getError());
+      default:
+        throw new IllegalArgumentException("Bad data index");
+    }
+  }
+}
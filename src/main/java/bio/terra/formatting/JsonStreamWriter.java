@@ -0,0 +1,89 @@
+package bio.terra.formatting;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * JsonStreamWriter writes pretty-printed JSON straight to an output stream with a Jackson
+ * JsonGenerator. Nothing is collected into a String first, so callers can write arrays of elements
+ * as they are enumerated and memory use does not depend on the size of the output.
+ *
+ * <p>Write failures are thrown as UncheckedIOException so that writes can be made from lambdas,
+ * such as tree walker visitors. Closing the writer finishes the output with a newline and flushes
+ * it; the underlying stream is not closed.
+ */
+public class JsonStreamWriter implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final OutputStream outputStream;
+  private final JsonGenerator generator;
+
+  /** Write action that may throw the generator's IOException. */
+  @FunctionalInterface
+  public interface JsonWriteAction {
+    void write(JsonGenerator generator) throws IOException;
+  }
+
+  public JsonStreamWriter(OutputStream outputStream) {
+    this.outputStream = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+    try {
+      this.generator =
+          objectMapper
+              .getFactory()
+              .createGenerator(this.outputStream)
+              .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+              .useDefaultPrettyPrinter();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Make a writer on standard output. The writer buffers in front of System.out, so the generator
+   * output reaches the PrintStream in large blocks.
+   *
+   * @return writer on standard output
+   */
+  public static JsonStreamWriter toStdout() {
+    return new JsonStreamWriter(System.out);
+  }
+
+  /**
+   * Write a complete object, serialized by Jackson directly into the output.
+   *
+   * @param value object to write
+   */
+  public void writeObject(Object value) {
+    write(gen -> objectMapper.writeValue(gen, value));
+  }
+
+  /**
+   * Run a write action against the generator.
+   *
+   * @param action code that writes JSON tokens
+   */
+  public void write(JsonWriteAction action) {
+    try {
+      action.write(generator);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      generator.close();
+      outputStream.write('\n');
+      outputStream.flush();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+}
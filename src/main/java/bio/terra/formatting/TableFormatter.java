@@ -2,77 +2,129 @@ package bio.terra.formatting;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 
+/**
+ * TableFormatter prints items as a table with a header row and a dash row.
+ *
+ * <p>Column widths start from the lengths the items declare. Columns marked for computation are
+ * widened to fit the data of the sampled rows. Given a list, every row is sampled, as before. Given
+ * an iterator, only the first sampleSize rows are read before printing starts; later rows stream
+ * straight to the output, and a value longer than its column simply pushes the rest of that row
+ * over. Callers that know their data can pass width hints and a sample size of zero to start
+ * printing at once.
+ *
+ * @param <T> item type
+ */
 public class TableFormatter<T extends TableFormatBase> {
-  private List<T> itemList;
+  public static final int DEFAULT_SAMPLE_SIZE = 100;
+
+  private static final String SEPARATOR = " | ";
+
+  private Iterator<T> items;
   private PrintStream ps;
   private int indent;
+  private int sampleSize;
+  private int[] widthHints;
 
   public TableFormatter(List<T> itemList, PrintStream ps, int indent) {
-    this.itemList = itemList;
+    this(itemList.iterator(), ps, indent, Integer.MAX_VALUE);
+  }
+
+  public TableFormatter(Iterator<T> items, PrintStream ps, int indent, int sampleSize) {
+    this.items = items;
     this.ps = ps;
     this.indent = indent;
+    this.sampleSize = sampleSize;
+  }
+
+  /**
+   * Set the column widths to use instead of computing them from the sampled rows. A hint of zero or
+   * less leaves that column to the normal computation.
+   *
+   * @param widthHints one width per column
+   * @return this formatter
+   */
+  public TableFormatter<T> widthHints(int... widthHints) {
+    this.widthHints = widthHints;
+    return this;
   }
 
   public void printTable() {
-    // Build column width array and make array of columns to compute
-    List<Integer> widths = new ArrayList<>();
-    List<Integer> computeIndices = new ArrayList<>();
+    // Read the sample. Nothing to print if there are no items.
+    List<T> sample = new ArrayList<>();
+    while (sample.size() < Math.max(sampleSize, 1) && items.hasNext()) {
+      sample.add(items.next());
+    }
+    if (sample.isEmpty()) {
+      return;
+    }
 
     // We use the first item to get the metadata about the table.
     // Can't use statics in an interface...
-    T firstItem = itemList.get(0);
-    for (int i = 0; i < firstItem.columnCount(); i++) {
-      widths.add(firstItem.getLength(i));
-      if (firstItem.computeLength(i)) {
-        computeIndices.add(i);
-      }
-    }
-
-    // Do any field size computations
-    if (computeIndices.size() > 0) {
-      for (T item : itemList) {
-        for (Integer idx : computeIndices) {
-          int dataLength = StringUtils.length(item.getData(idx));
-          if (dataLength > widths.get(idx)) {
-            widths.set(idx, dataLength);
-          }
+    T firstItem = sample.get(0);
+    int columnCount = firstItem.columnCount();
+    int[] widths = new int[columnCount];
+    String[] header = new String[columnCount];
+    String[] dash = new String[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      boolean hinted = widthHints != null && i < widthHints.length && widthHints[i] > 0;
+      widths[i] = hinted ? widthHints[i] : firstItem.getLength(i);
+      if (!hinted && firstItem.computeLength(i) && sampleSize > 0) {
+        for (T item : sample) {
+          widths[i] = Math.max(widths[i], StringUtils.length(item.getData(i)));
         }
       }
-    }
-
-    // Generate the printf format string, the header data array, and the dash data array
-    String[] dash = new String[firstItem.columnCount()];
-    String[] header = new String[firstItem.columnCount()];
-    StringBuilder sb = new StringBuilder();
-    if (indent > 0) {
-      sb.append(StringUtils.repeat(' ', indent));
-    }
-    for (int i = 0; i < firstItem.columnCount(); i++) {
-      if (i > 0) {
-        sb.append(" | ");
-      }
-      sb.append("%-").append(widths.get(i)).append("s");
-
-      dash[i] = StringUtils.repeat('-', widths.get(i));
       header[i] = firstItem.getHeader(i);
+      dash[i] = StringUtils.repeat('-', widths[i]);
     }
-    sb.append('\n');
-    String format = sb.toString();
 
     // Print the result:
     // - header
     // - dash row
-    // - data rows
-    ps.printf(format, (Object[]) header);
-    ps.printf(format, (Object[]) dash);
+    // - data rows: the sample, then the rest as they arrive
+    StringBuilder sb = new StringBuilder();
+    printRow(sb, header, widths);
+    printRow(sb, dash, widths);
+
+    String[] data = new String[columnCount];
+    for (T item : sample) {
+      printItem(sb, data, item, widths);
+    }
+    sample.clear();
+    while (items.hasNext()) {
+      printItem(sb, data, items.next(), widths);
+    }
+    ps.flush();
+  }
 
-    for (T item : itemList) {
-      String[] data = new String[item.columnCount()];
-      for (int i = 0; i < item.columnCount(); i++) data[i] = item.getData(i);
-      ps.printf(format, (Object[]) data);
+  private void printItem(StringBuilder sb, String[] data, T item, int[] widths) {
+    for (int i = 0; i < data.length; i++) {
+      data[i] = item.getData(i);
     }
+    printRow(sb, data, widths);
+  }
+
+  // Format one row into the shared builder and print it. Values are left justified and padded to
+  // the column width, matching %-Ns.
+  private void printRow(StringBuilder sb, String[] values, int[] widths) {
+    sb.setLength(0);
+    for (int i = 0; i < indent; i++) {
+      sb.append(' ');
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        sb.append(SEPARATOR);
+      }
+      String value = String.valueOf(values[i]);
+      sb.append(value);
+      for (int pad = value.length(); pad < widths[i]; pad++) {
+        sb.append(' ');
+      }
+    }
+    sb.append('\n');
+    ps.append(sb);
   }
 }
@@ -23,11 +23,18 @@ public class DRCollectionFiles extends DRElement {
   private DRCollectionType collectionType;
   private String collectionId;
   private String created;
+  private int fetchDepth;
 
   public DRCollectionFiles(DRCollectionType collectionType, String collectionId, String created) {
+    this(collectionType, collectionId, created, DRFile.DEFAULT_FETCH_DEPTH);
+  }
+
+  public DRCollectionFiles(
+      DRCollectionType collectionType, String collectionId, String created, int fetchDepth) {
     this.collectionType = collectionType;
     this.collectionId = collectionId;
     this.created = created;
+    this.fetchDepth = fetchDepth;
   }
 
   @Override
@@ -70,8 +77,8 @@ public class DRCollectionFiles extends DRElement {
     }
 
     try {
-      FileModel fileModel = pathLookup(path, 1);
-      return new DRFile(collectionType, fileModel);
+      FileModel fileModel = pathLookup(path, fetchDepth);
+      return new DRFile(collectionType, fileModel, fetchDepth);
     } catch (ApiException ex) {
       CommandUtils.printErrorAndExit("Error processing files enumeration");
     }
@@ -81,13 +88,13 @@ public class DRCollectionFiles extends DRElement {
   @Override
   public List<DRElement> enumerate() {
     FileModel fileModel = getFileModel();
-    DRFile rootDir = new DRFile(collectionType, fileModel);
+    DRFile rootDir = new DRFile(collectionType, fileModel, fetchDepth);
     return rootDir.enumerate();
   }
 
   private FileModel getFileModel() {
     try {
-      return pathLookup("/", 1);
+      return pathLookup("/", fetchDepth);
     } catch (ApiException ex) {
       // the pathLookup function above is checking the top-level files collection (path = "/")
       // the code below checks for the case where this returns not found
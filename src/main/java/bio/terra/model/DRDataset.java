@@ -17,9 +17,15 @@ import org.apache.commons.lang3.StringUtils;
 
 public class DRDataset extends DRElement {
   private DatasetSummaryModel summary;
+  private int fetchDepth;
 
   public DRDataset(DatasetSummaryModel summary) {
+    this(summary, DRFile.DEFAULT_FETCH_DEPTH);
+  }
+
+  public DRDataset(DatasetSummaryModel summary, int fetchDepth) {
     this.summary = summary;
+    this.fetchDepth = fetchDepth;
   }
 
   @Override
@@ -55,7 +61,10 @@ public class DRDataset extends DRElement {
     String name = pathParts.remove();
     if (StringUtils.equalsIgnoreCase(name, "files")) {
       return new DRCollectionFiles(
-              DRCollectionType.COLLECTION_TYPE_DATASET, summary.getId(), summary.getCreatedDate())
+              DRCollectionType.COLLECTION_TYPE_DATASET,
+              summary.getId(),
+              summary.getCreatedDate(),
+              fetchDepth)
           .lookup(pathParts);
     } else if (StringUtils.equalsIgnoreCase(name, "tables")) {
       DatasetModel dataset = getDataset(summary.getId());
@@ -75,7 +84,10 @@ public class DRDataset extends DRElement {
     List<DRElement> elementList = new ArrayList<>();
     elementList.add(
         new DRCollectionFiles(
-            DRCollectionType.COLLECTION_TYPE_DATASET, dataset.getId(), dataset.getCreatedDate()));
+            DRCollectionType.COLLECTION_TYPE_DATASET,
+            dataset.getId(),
+            dataset.getCreatedDate(),
+            fetchDepth));
     elementList.add(
         new DRCollectionTables(
             DRCollectionType.COLLECTION_TYPE_DATASET,
@@ -175,6 +187,7 @@ public class DRDataset extends DRElement {
     try {
       return DRApi.get().retrieveDataset(id);
     } catch (DataRepoClientException ex) {
+      CommandUtils.invalidateCachedNames(ex);
       System.err.println("Error retrieving dataset");
       CommandUtils.printErrorAndExit(ex.getMessage());
     }
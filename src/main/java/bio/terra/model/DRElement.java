@@ -1,13 +1,14 @@
 package bio.terra.model;
 
 import static bio.terra.command.CommandUtils.CLIFormatFlags;
-import static bio.terra.command.CommandUtils.outputPrettyJson;
+import static bio.terra.command.CommandUtils.outputJson;
 import static bio.terra.command.CommandUtils.printErrorAndExit;
 
-import java.util.HashMap;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 public abstract class DRElement {
   public static final String DESCRIBE_FORMAT = "%-12s: %s%n";
@@ -26,6 +27,12 @@ public abstract class DRElement {
   // Each element has to be able to enumerate itself
   public abstract List<DRElement> enumerate();
 
+  // Iterate over the children for printing. Elements that can page through a large number of
+  // children override this so output can start before the enumeration finishes.
+  public Iterator<DRElement> iterate() {
+    return enumerate().iterator();
+  }
+
   // Each element has to be able to lookup a child path. If the element is the last part in the
   // path;
   // that is, the path is empty after it is resolved, then the element returns itself. Otherwise,
@@ -70,13 +77,33 @@ public abstract class DRElement {
   }
 
   protected void describeJson() {
-    Map<String, String> objectValues = new HashMap<>();
-    objectValues.put("name", getObjectName());
-    objectValues.put("type", getObjectType().getName());
-    objectValues.put("description", getDescription());
-    objectValues.put("id", getId());
-    objectValues.put("createdDate", getCreated());
-
-    outputPrettyJson(objectValues);
+    outputJson(writer -> writer.write(this::writeJson));
+  }
+
+  /**
+   * Write the basic information about the element as a JSON object. Used by describe and by the
+   * streaming list and tree output.
+   *
+   * @param generator where to write the object
+   * @throws IOException if the output cannot be written
+   */
+  public void writeJson(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    writeJsonFields(generator);
+    generator.writeEndObject();
+  }
+
+  /**
+   * Write the basic fields of the element into an object the caller has started.
+   *
+   * @param generator where to write the fields
+   * @throws IOException if the output cannot be written
+   */
+  public void writeJsonFields(JsonGenerator generator) throws IOException {
+    generator.writeStringField("name", getObjectName());
+    generator.writeStringField("type", getObjectType().getName());
+    generator.writeStringField("description", getDescription());
+    generator.writeStringField("id", getId());
+    generator.writeStringField("createdDate", getCreated());
   }
 }
@@ -9,16 +9,29 @@ import bio.terra.datarepo.model.FileModelType;
 import bio.terra.tdrwrapper.exception.DataRepoClientException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 
 public class DRFile extends DRElement {
+  // Directory levels to request when we have to fetch a directory. The data repo returns that many
+  // levels expanded in one response; -1 asks for the whole subtree.
+  public static final int DEFAULT_FETCH_DEPTH = 1;
+  public static final int FULL_DEPTH = -1;
+
   private FileModel fileModel;
   private DRCollectionType collectionType;
+  // Levels still wanted below this element; children get one less
+  private int fetchDepth;
 
   public DRFile(DRCollectionType collectionType, FileModel fileModel) {
+    this(collectionType, fileModel, DEFAULT_FETCH_DEPTH);
+  }
+
+  public DRFile(DRCollectionType collectionType, FileModel fileModel, int fetchDepth) {
     this.collectionType = collectionType;
     this.fileModel = fileModel;
+    this.fetchDepth = fetchDepth;
   }
 
   @Override
@@ -53,28 +66,23 @@ public class DRFile extends DRElement {
   public List<DRElement> enumerate() {
     if (fileModel.getFileType() == FileModelType.DIRECTORY) {
       DirectoryDetailModel directoryDetail = fileModel.getDirectoryDetail();
-      // If the directory is not enumerated, then enumerate it
+      // If the data repo did not expand this directory in an earlier response, fetch it along
+      // with the levels still wanted below it. Subdirectories that came back expanded are
+      // enumerated from memory.
       if (!directoryDetail.isEnumerated()) {
         try {
-          FileModel enumDir;
-          if (collectionType == DRCollectionType.COLLECTION_TYPE_DATASET) {
-            enumDir =
-                DRApi.get().lookupFileById(fileModel.getCollectionId(), fileModel.getFileId(), 1);
-          } else {
-            enumDir =
-                DRApi.get()
-                    .lookupSnapshotFileById(fileModel.getCollectionId(), fileModel.getFileId(), 1);
-          }
-          fileModel = enumDir;
+          fileModel = lookupById(fileModel.getFileId(), fetchDepth);
         } catch (DataRepoClientException ex) {
           System.err.println("Error processing directory enumerate:");
           CommandUtils.printError(ex);
         }
       }
 
+      // A child that is enumerated later still gets at least one level per fetch
+      int childDepth = (fetchDepth == FULL_DEPTH) ? FULL_DEPTH : Math.max(1, fetchDepth - 1);
       List<DRElement> elementList = new ArrayList<>();
       for (FileModel item : fileModel.getDirectoryDetail().getContents()) {
-        elementList.add(new DRFile(collectionType, item));
+        elementList.add(new DRFile(collectionType, item, childDepth));
       }
 
       return elementList;
@@ -84,6 +92,26 @@ public class DRFile extends DRElement {
     }
   }
 
+  // Resolve a path below this directory from its contents, fetching them only if they were not
+  // part of an earlier response
+  @Override
+  public DRElement lookup(LinkedList<String> pathParts) {
+    if (pathParts.isEmpty()) {
+      return this;
+    }
+    if (fileModel.getFileType() != FileModelType.DIRECTORY) {
+      CommandUtils.printErrorAndExit("Not a directory: " + fileModel.getPath());
+    }
+    String name = pathParts.remove();
+    for (DRElement child : enumerate()) {
+      if (StringUtils.equals(child.getObjectName(), name)) {
+        return child.lookup(pathParts);
+      }
+    }
+    CommandUtils.printErrorAndExit("Object not found");
+    return null; // unreachable
+  }
+
   @Override
   public boolean isLeaf() {
     return (fileModel.getFileType() == FileModelType.FILE);
@@ -118,4 +146,39 @@ public class DRFile extends DRElement {
   public FileModel getFileModel() {
     return fileModel;
   }
+
+  /**
+   * Make sure the file model is expanded to the given depth. The data repo may leave deep
+   * directories unexpanded; only those directories are fetched, each with the depth remaining
+   * below it.
+   *
+   * @param depth number of directory levels to expand; -1 means the whole subtree
+   */
+  public void expand(int depth) {
+    fileModel = expandModel(fileModel, depth);
+  }
+
+  private FileModel expandModel(FileModel model, int depth) {
+    if (depth == 0 || model.getFileType() != FileModelType.DIRECTORY) {
+      return model;
+    }
+    if (!model.getDirectoryDetail().isEnumerated()) {
+      model = lookupById(model.getFileId(), depth);
+    }
+
+    int childDepth = (depth == FULL_DEPTH) ? FULL_DEPTH : depth - 1;
+    List<FileModel> contents = new ArrayList<>();
+    for (FileModel item : model.getDirectoryDetail().getContents()) {
+      contents.add(expandModel(item, childDepth));
+    }
+    model.getDirectoryDetail().setContents(contents);
+    return model;
+  }
+
+  private FileModel lookupById(String fileId, int depth) {
+    if (collectionType == DRCollectionType.COLLECTION_TYPE_DATASET) {
+      return DRApi.get().lookupFileById(fileModel.getCollectionId(), fileId, depth);
+    }
+    return DRApi.get().lookupSnapshotFileById(fileModel.getCollectionId(), fileId, depth);
+  }
 }
@@ -6,15 +6,29 @@ import bio.terra.datarepo.model.DatasetSummaryModel;
 import bio.terra.datarepo.model.EnumerateDatasetModel;
 import bio.terra.datarepo.model.EnumerateSnapshotModel;
 import bio.terra.datarepo.model.SnapshotSummaryModel;
+import bio.terra.tdrwrapper.EnumeratePager;
 import bio.terra.tdrwrapper.exception.DataRepoClientException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import org.apache.commons.lang3.StringUtils;
 
 public class DRRoot extends DRElement {
+  private int fetchDepth;
 
-  public DRRoot() {}
+  public DRRoot() {
+    this(DRFile.DEFAULT_FETCH_DEPTH);
+  }
+
+  /**
+   * @param fetchDepth directory levels to request per file lookup below this root; callers that
+   *     will walk the file tree pass a larger depth so most directories arrive already expanded
+   */
+  public DRRoot(int fetchDepth) {
+    this.fetchDepth = fetchDepth;
+  }
 
   @Override
   public DRElementType getObjectType() {
@@ -48,14 +62,14 @@ public class DRRoot extends DRElement {
     }
     String name = pathParts.remove();
 
-    SnapshotSummaryModel snapshotSummaryModel = findSnapshotByName(name);
+    SnapshotSummaryModel snapshotSummaryModel = CommandUtils.lookupSnapshotByName(name);
     if (snapshotSummaryModel != null) {
-      return new DRSnapshot(snapshotSummaryModel).lookup(pathParts);
+      return new DRSnapshot(snapshotSummaryModel, fetchDepth).lookup(pathParts);
     }
 
-    DatasetSummaryModel datasetSummaryModel = findDatasetByName(name);
+    DatasetSummaryModel datasetSummaryModel = CommandUtils.lookupDatasetByName(name);
     if (datasetSummaryModel != null) {
-      return new DRDataset(datasetSummaryModel).lookup(pathParts);
+      return new DRDataset(datasetSummaryModel, fetchDepth).lookup(pathParts);
     }
 
     CommandUtils.printErrorAndExit("Object not found");
@@ -70,14 +84,14 @@ public class DRRoot extends DRElement {
           DRApi.get().enumerateSnapshots(0, 10000, null, null, null);
       List<SnapshotSummaryModel> snapshots = enumerateSnapshotModel.getItems();
       for (SnapshotSummaryModel snapshot : snapshots) {
-        elementList.add(new DRSnapshot(snapshot));
+        elementList.add(new DRSnapshot(snapshot, fetchDepth));
       }
 
       EnumerateDatasetModel enumerateDatasetModel =
           DRApi.get().enumerateDatasets(0, 10000, null, null, null);
       List<DatasetSummaryModel> datasets = enumerateDatasetModel.getItems();
       for (DatasetSummaryModel dataset : datasets) {
-        elementList.add(new DRDataset(dataset));
+        elementList.add(new DRDataset(dataset, fetchDepth));
       }
     } catch (DataRepoClientException ex) {
       System.err.println("Error processing root enumeration list:");
@@ -86,39 +100,36 @@ public class DRRoot extends DRElement {
     return elementList;
   }
 
-  private SnapshotSummaryModel findSnapshotByName(String snapshotName) {
-    try {
-      EnumerateSnapshotModel enumerateSnapshotModel =
-          DRApi.get().enumerateSnapshots(0, 100000, null, null, snapshotName);
-
-      List<SnapshotSummaryModel> datasets = enumerateSnapshotModel.getItems();
-      for (SnapshotSummaryModel summary : datasets) {
-        if (StringUtils.equals(summary.getName(), snapshotName)) {
-          return summary;
+  // Page through the snapshots and then the datasets, so that large listings print as they arrive
+  @Override
+  public Iterator<DRElement> iterate() {
+    EnumeratePager<SnapshotSummaryModel> snapshots =
+        DRApi.get().pageSnapshots(null, EnumeratePager.DEFAULT_PAGE_SIZE);
+    EnumeratePager<DatasetSummaryModel> datasets =
+        DRApi.get().pageDatasets(null, EnumeratePager.DEFAULT_PAGE_SIZE);
+
+    return new Iterator<DRElement>() {
+      @Override
+      public boolean hasNext() {
+        try {
+          return snapshots.hasNext() || datasets.hasNext();
+        } catch (DataRepoClientException ex) {
+          System.err.println("Error processing root enumeration list:");
+          CommandUtils.printErrorAndExit(ex.getMessage());
+          return false; // unreachable
         }
       }
-      return null;
-
-    } catch (DataRepoClientException ex) {
-      throw new IllegalArgumentException("Error processing find dataset by name");
-    }
-  }
-
-  private DatasetSummaryModel findDatasetByName(String datasetName) {
-    try {
-      EnumerateDatasetModel enumerateDatasetModel =
-          DRApi.get().enumerateDatasets(0, 100000, null, null, datasetName);
 
-      List<DatasetSummaryModel> studies = enumerateDatasetModel.getItems();
-      for (DatasetSummaryModel summary : studies) {
-        if (StringUtils.equals(summary.getName(), datasetName)) {
-          return summary;
+      @Override
+      public DRElement next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
         }
+        if (snapshots.hasNext()) {
+          return new DRSnapshot(snapshots.convert(snapshots.next()), fetchDepth);
+        }
+        return new DRDataset(datasets.convert(datasets.next()), fetchDepth);
       }
-      return null;
-
-    } catch (DataRepoClientException ex) {
-      throw new IllegalArgumentException("Error processing find dataset by name");
-    }
+    };
   }
 }
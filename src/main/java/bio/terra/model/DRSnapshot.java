@@ -14,9 +14,15 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 
 public class DRSnapshot extends DRElement {
   private SnapshotSummaryModel summary;
+  private int fetchDepth;
 
   public DRSnapshot(SnapshotSummaryModel summary) {
+    this(summary, DRFile.DEFAULT_FETCH_DEPTH);
+  }
+
+  public DRSnapshot(SnapshotSummaryModel summary, int fetchDepth) {
     this.summary = summary;
+    this.fetchDepth = fetchDepth;
   }
 
   @Override
@@ -52,7 +58,10 @@ public class DRSnapshot extends DRElement {
     String name = pathParts.remove();
     if (StringUtils.equalsIgnoreCase(name, "files")) {
       return new DRCollectionFiles(
-              DRCollectionType.COLLECTION_TYPE_SNAPSHOT, summary.getId(), summary.getCreatedDate())
+              DRCollectionType.COLLECTION_TYPE_SNAPSHOT,
+              summary.getId(),
+              summary.getCreatedDate(),
+              fetchDepth)
           .lookup(pathParts);
     } else if (StringUtils.equalsIgnoreCase(name, "tables")) {
       SnapshotModel snapshot = getSnapshot(summary.getId());
@@ -73,7 +82,10 @@ public class DRSnapshot extends DRElement {
     List<DRElement> elementList = new ArrayList<>();
     elementList.add(
         new DRCollectionFiles(
-            DRCollectionType.COLLECTION_TYPE_SNAPSHOT, summary.getId(), summary.getCreatedDate()));
+            DRCollectionType.COLLECTION_TYPE_SNAPSHOT,
+            summary.getId(),
+            summary.getCreatedDate(),
+            fetchDepth));
     elementList.add(
         new DRCollectionTables(
             DRCollectionType.COLLECTION_TYPE_SNAPSHOT,
@@ -124,6 +136,7 @@ public class DRSnapshot extends DRElement {
     try {
       return DRApi.get().retrieveSnapshot(id);
     } catch (DataRepoClientException ex) {
+      CommandUtils.invalidateCachedNames(ex);
       System.err.println("Error retrieving snapshot");
       CommandUtils.printErrorAndExit(ex.getMessage());
     }
@@ -0,0 +1,87 @@
+package bio.terra.model;
+
+import bio.terra.command.CommandUtils;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * ElementCache keeps the elements resolved by path lookups for the life of an interactive shell.
+ * A lookup starts from the longest path already resolved instead of from the root, so moving
+ * around and listing below the current directory needs no new lookups of the levels above it.
+ * Directories already fetched are listed from memory.
+ *
+ * <p>It is off for single commands, which resolve from the root every time. Only lookups at the
+ * default fetch depth are kept; deep lookups such as recursive listings always resolve from the
+ * root. The shell clears the cache after any command that may change the data repo.
+ */
+public final class ElementCache {
+  private static final Map<String, DRElement> elements = new HashMap<>();
+  private static boolean enabled;
+
+  private ElementCache() {}
+
+  public static synchronized void setEnabled(boolean enabled) {
+    ElementCache.enabled = enabled;
+    if (!enabled) {
+      elements.clear();
+    }
+  }
+
+  public static synchronized void clear() {
+    elements.clear();
+  }
+
+  /**
+   * Find the element at a full path.
+   *
+   * @param fullPath absolute path in the data repo
+   * @param fetchDepth directory levels to request per file lookup
+   * @return the element
+   */
+  public static DRElement lookup(String fullPath, int fetchDepth) {
+    List<String> pathParts = Arrays.asList(StringUtils.split(fullPath, CommandUtils.SLASH));
+    if (!useCache(fetchDepth)) {
+      return new DRRoot(fetchDepth).lookup(new LinkedList<>(pathParts));
+    }
+
+    // Start from the deepest ancestor we have already resolved
+    DRElement start = null;
+    int resolved = pathParts.size();
+    while (resolved > 0 && start == null) {
+      start = get(pathParts.subList(0, resolved));
+      if (start == null) {
+        resolved--;
+      }
+    }
+    if (start == null) {
+      start = new DRRoot(fetchDepth);
+    }
+
+    DRElement element =
+        start.lookup(new LinkedList<>(pathParts.subList(resolved, pathParts.size())));
+    put(pathParts, element);
+    return element;
+  }
+
+  private static synchronized boolean useCache(int fetchDepth) {
+    return enabled && fetchDepth == DRFile.DEFAULT_FETCH_DEPTH;
+  }
+
+  private static synchronized DRElement get(List<String> pathParts) {
+    return elements.get(makeKey(pathParts));
+  }
+
+  private static synchronized void put(List<String> pathParts, DRElement element) {
+    if (enabled) {
+      elements.put(makeKey(pathParts), element);
+    }
+  }
+
+  private static String makeKey(List<String> pathParts) {
+    return CommandUtils.SLASH + StringUtils.join(pathParts, CommandUtils.SLASH);
+  }
+}
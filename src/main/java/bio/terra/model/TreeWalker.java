@@ -0,0 +1,266 @@
+package bio.terra.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TreeWalker walks a DRElement tree in pre-order, the same order as a serial depth-first walk, but
+ * runs the element enumerations on a bounded pool of threads. As soon as a directory is enumerated,
+ * the enumerations of its children are queued, so the pool keeps fetching ahead of the visitor.
+ *
+ * <p>The queue is ordered by pre-order position, so the threads always work on the elements the
+ * visitor will need soonest. The visitor is called on the thread that calls {@link #walk}, one
+ * element at a time, in the serial order; it does not need to be thread safe.
+ *
+ * <p>Fetching ahead is bounded: once {@link #PREFETCH_PER_THREAD} times the concurrency elements
+ * are enumerated or in flight but not yet visited, no more enumerations are started until the
+ * visitor catches up. A slow visitor, such as one writing to a pipe, does not make the walk hold
+ * the whole tree in memory.
+ */
+public class TreeWalker {
+  public static final int DEFAULT_CONCURRENCY = 8;
+  static final int PREFETCH_PER_THREAD = 4;
+
+  private final int concurrency;
+
+  /** Called once per element, in pre-order. */
+  @FunctionalInterface
+  public interface Visitor {
+    /**
+     * Visit an element.
+     *
+     * @param element the element
+     * @param path path of the element, built from the root path and the element names
+     * @param depth depth of the element; the root is depth 0
+     * @param children enumerated children of the element; null if it was not expanded
+     */
+    void visit(DRElement element, String path, int depth, List<DRElement> children);
+  }
+
+  public TreeWalker(int concurrency) {
+    if (concurrency <= 0) {
+      throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+    }
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * Walk the tree. An element is expanded if it is above the maximum depth and it is not a leaf.
+   * Enumeration errors are rethrown when the walk reaches the failed element, so everything
+   * before it has been visited.
+   *
+   * @param root element at the top of the walk
+   * @param rootPath path of the root element
+   * @param maxDepth depth below which elements are not expanded
+   * @param visitor receives the elements in pre-order
+   */
+  public void walk(DRElement root, String rootPath, int maxDepth, Visitor visitor) {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            concurrency,
+            concurrency,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "tree-walker-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    try {
+      Walk walk = new Walk(executor, maxDepth, concurrency * PREFETCH_PER_THREAD);
+      Deque<Node> stack = new ArrayDeque<>();
+      stack.push(walk.start(new Node(root, rootPath, 0, new int[0])));
+
+      while (!stack.isEmpty()) {
+        Node node = stack.pop();
+        List<Node> childNodes = walk.awaitChildren(node);
+        if (childNodes == null) {
+          visitor.visit(node.element, node.path, node.depth, null);
+          continue;
+        }
+
+        List<DRElement> children = new ArrayList<>(childNodes.size());
+        for (Node childNode : childNodes) {
+          children.add(childNode.element);
+        }
+        visitor.visit(node.element, node.path, node.depth, children);
+
+        for (int i = childNodes.size() - 1; i >= 0; i--) {
+          stack.push(childNodes.get(i));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // State of one walk: the expandable nodes waiting for an enumeration, in pre-order, and the
+  // number of nodes that are enumerated or in flight but not yet visited.
+  private static final class Walk {
+    private final ThreadPoolExecutor executor;
+    private final int maxDepth;
+    private final int prefetchLimit;
+    private final PriorityQueue<Node> pending =
+        new PriorityQueue<>((a, b) -> compareOrder(a.order, b.order));
+    private int outstanding;
+
+    Walk(ThreadPoolExecutor executor, int maxDepth, int prefetchLimit) {
+      this.executor = executor;
+      this.maxDepth = maxDepth;
+      this.prefetchLimit = prefetchLimit;
+    }
+
+    synchronized Node start(Node root) {
+      prepare(root);
+      submitPending();
+      return root;
+    }
+
+    // Wait for the enumeration of a node the visitor has reached. If the prefetch limit held it
+    // back, start it now: everything outstanding comes after it, so nothing else would free room.
+    List<Node> awaitChildren(Node node) {
+      if (node.children == null) {
+        return null;
+      }
+      synchronized (this) {
+        if (!node.submitted) {
+          submit(node);
+        }
+      }
+      try {
+        return node.awaitChildren();
+      } finally {
+        synchronized (this) {
+          outstanding--;
+          submitPending();
+        }
+      }
+    }
+
+    // Mark a node as needing an enumeration unless it is at the depth limit or a leaf
+    private void prepare(Node node) {
+      if (node.depth >= maxDepth || node.element.isLeaf()) {
+        return;
+      }
+      node.children = new CompletableFuture<>();
+      pending.add(node);
+    }
+
+    private void submitPending() {
+      while (outstanding < prefetchLimit && !pending.isEmpty()) {
+        Node node = pending.poll();
+        if (!node.submitted) {
+          submit(node);
+        }
+      }
+    }
+
+    private void submit(Node node) {
+      node.submitted = true;
+      outstanding++;
+      executor.execute(new FetchTask(node.order, () -> fetch(node)));
+    }
+
+    private void fetch(Node node) {
+      try {
+        List<DRElement> elements = node.element.enumerate();
+        List<Node> childNodes = new ArrayList<>(elements.size());
+        synchronized (this) {
+          for (int i = 0; i < elements.size(); i++) {
+            DRElement element = elements.get(i);
+            int[] order = Arrays.copyOf(node.order, node.order.length + 1);
+            order[node.order.length] = i;
+            String path = node.path + "/" + element.getObjectName();
+            Node childNode = new Node(element, path, node.depth + 1, order);
+            prepare(childNode);
+            childNodes.add(childNode);
+          }
+          submitPending();
+        }
+        node.children.complete(Collections.unmodifiableList(childNodes));
+      } catch (RuntimeException ex) {
+        node.children.completeExceptionally(ex);
+      }
+    }
+  }
+
+  // One element of the walk. Children is null for elements that are not expanded.
+  private static final class Node {
+    private final DRElement element;
+    private final String path;
+    private final int depth;
+    private final int[] order; // child index at each level from the root; pre-order sort key
+    private CompletableFuture<List<Node>> children;
+    private boolean submitted; // guarded by the Walk
+
+    Node(DRElement element, String path, int depth, int[] order) {
+      this.element = element;
+      this.path = path;
+      this.depth = depth;
+      this.order = order;
+    }
+
+    List<Node> awaitChildren() {
+      if (children == null) {
+        return null;
+      }
+      try {
+        return children.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Interrupted while walking the tree");
+      } catch (ExecutionException ex) {
+        if (ex.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) ex.getCause();
+        }
+        throw new IllegalStateException("Error enumerating " + path, ex.getCause());
+      }
+    }
+  }
+
+  // Runnable that the priority queue orders by pre-order position
+  private static final class FetchTask implements Runnable, Comparable<FetchTask> {
+    private final int[] order;
+    private final Runnable work;
+
+    FetchTask(int[] order, Runnable work) {
+      this.order = order;
+      this.work = work;
+    }
+
+    @Override
+    public void run() {
+      work.run();
+    }
+
+    @Override
+    public int compareTo(FetchTask other) {
+      return compareOrder(order, other.order);
+    }
+  }
+
+  private static int compareOrder(int[] order, int[] other) {
+    int length = Math.min(order.length, other.length);
+    for (int i = 0; i < length; i++) {
+      if (order[i] != other[i]) {
+        return Integer.compare(order[i], other[i]);
+      }
+    }
+    return Integer.compare(order.length, other.length);
+  }
+}
@@ -0,0 +1,28 @@
+package bio.terra.tdrwrapper;
+
+import java.util.function.Supplier;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+
+/**
+ * AccessTokenFilter puts the current bearer token on every request made through the http client it
+ * is registered with. The token is fetched per request, so a refreshed token is picked up without
+ * reconfiguring the api client, and requests made outside the generated api, such as the enumerate
+ * pagers, carry it too.
+ */
+public class AccessTokenFilter implements ClientRequestFilter {
+  private final Supplier<String> accessTokenSupplier;
+
+  public AccessTokenFilter(Supplier<String> accessTokenSupplier) {
+    this.accessTokenSupplier = accessTokenSupplier;
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    String accessToken = accessTokenSupplier.get();
+    if (accessToken != null) {
+      requestContext.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
+    }
+  }
+}
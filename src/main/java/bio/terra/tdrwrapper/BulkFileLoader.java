@@ -0,0 +1,217 @@
+package bio.terra.tdrwrapper;
+
+import bio.terra.datarepo.model.BulkLoadArrayRequestModel;
+import bio.terra.datarepo.model.BulkLoadArrayResultModel;
+import bio.terra.datarepo.model.BulkLoadFileModel;
+import bio.terra.datarepo.model.BulkLoadFileResultModel;
+import bio.terra.datarepo.model.BulkLoadFileState;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * BulkFileLoader loads a stream of files into a dataset using bulk file load array jobs. The files
+ * are split into arrays of a fixed size and a bounded number of array jobs are kept running at
+ * once. The array jobs are watched by the JobWatcher, so waiting does not hold a thread per job.
+ *
+ * <p>Each array gets its own load tag, made from the base load tag and the array number, because
+ * the data repo does not allow two running loads to share a load tag.
+ *
+ * <p>If an array job fails as a whole, every file in the array is reported as failed with the job
+ * error, so the caller always gets one result per file.
+ */
+public class BulkFileLoader {
+  public static final int DEFAULT_ARRAY_SIZE = 1000;
+  public static final int DEFAULT_JOBS = 4;
+
+  private final Function<BulkLoadArrayRequestModel, CompletableFuture<BulkLoadArrayResultModel>>
+      launcher;
+  private String profileId;
+  private String loadTag;
+  private int arraySize = DEFAULT_ARRAY_SIZE;
+  private int jobs = DEFAULT_JOBS;
+  private Integer maxFailedFileLoads;
+  private ArrayListener arrayListener = (arrayNumber, request, results) -> {};
+
+  /** Called on the loading thread as each array finishes, in completion order. */
+  @FunctionalInterface
+  public interface ArrayListener {
+    void arrayDone(
+        int arrayNumber, BulkLoadArrayRequestModel request, List<BulkLoadFileResultModel> results);
+  }
+
+  /**
+   * Make a loader that launches array jobs through a data repo wrapper.
+   *
+   * @param dataRepoWrap wrapper to launch the jobs with
+   * @param datasetId dataset to load into
+   */
+  public BulkFileLoader(DataRepoWrap dataRepoWrap, String datasetId) {
+    this(
+        request ->
+            dataRepoWrap.bulkFileLoadArrayFuture(datasetId, request).getCompletableFuture());
+  }
+
+  /**
+   * Make a loader with a custom launcher.
+   *
+   * @param launcher starts an array job and returns a future for its result
+   */
+  public BulkFileLoader(
+      Function<BulkLoadArrayRequestModel, CompletableFuture<BulkLoadArrayResultModel>> launcher) {
+    this.launcher = launcher;
+  }
+
+  public BulkFileLoader profileId(String profileId) {
+    this.profileId = profileId;
+    return this;
+  }
+
+  public BulkFileLoader loadTag(String loadTag) {
+    this.loadTag = loadTag;
+    return this;
+  }
+
+  public BulkFileLoader arraySize(int arraySize) {
+    if (arraySize <= 0) {
+      throw new IllegalArgumentException("Array size must be positive: " + arraySize);
+    }
+    this.arraySize = arraySize;
+    return this;
+  }
+
+  public BulkFileLoader jobs(int jobs) {
+    if (jobs <= 0) {
+      throw new IllegalArgumentException("Jobs must be positive: " + jobs);
+    }
+    this.jobs = jobs;
+    return this;
+  }
+
+  /**
+   * Number of failed files allowed in each array before the data repo fails the array job. If not
+   * set, each array may fail completely, so every file gets its own result.
+   *
+   * @param maxFailedFileLoads failures allowed per array
+   * @return this loader
+   */
+  public BulkFileLoader maxFailedFileLoads(Integer maxFailedFileLoads) {
+    this.maxFailedFileLoads = maxFailedFileLoads;
+    return this;
+  }
+
+  public BulkFileLoader arrayListener(ArrayListener arrayListener) {
+    this.arrayListener = arrayListener;
+    return this;
+  }
+
+  public String getLoadTag() {
+    return loadTag;
+  }
+
+  /**
+   * Load the files. Returns when every array job has finished.
+   *
+   * @param files files to load; read as arrays are launched
+   * @return one result per file, in array completion order
+   */
+  public List<BulkLoadFileResultModel> load(Iterator<BulkLoadFileModel> files) {
+    List<BulkLoadFileResultModel> results = new ArrayList<>();
+    BlockingQueue<ArrayOutcome> completions = new LinkedBlockingQueue<>();
+    int arrayNumber = 0;
+    int inFlight = 0;
+
+    while (files.hasNext() || inFlight > 0) {
+      // Keep the pipeline full
+      while (inFlight < jobs && files.hasNext()) {
+        BulkLoadArrayRequestModel request = makeRequest(files, arrayNumber);
+        launch(arrayNumber, request, completions);
+        arrayNumber++;
+        inFlight++;
+      }
+
+      ArrayOutcome outcome;
+      try {
+        outcome = completions.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted waiting for bulk load jobs", ex);
+      }
+      inFlight--;
+
+      List<BulkLoadFileResultModel> arrayResults = outcome.getResults();
+      results.addAll(arrayResults);
+      arrayListener.arrayDone(outcome.arrayNumber, outcome.request, arrayResults);
+    }
+    return results;
+  }
+
+  private BulkLoadArrayRequestModel makeRequest(Iterator<BulkLoadFileModel> files, int number) {
+    BulkLoadArrayRequestModel request =
+        new BulkLoadArrayRequestModel()
+            .profileId(profileId)
+            .loadTag(loadTag + "-" + number)
+            .loadArray(new ArrayList<>());
+    while (files.hasNext() && request.getLoadArray().size() < arraySize) {
+      request.addLoadArrayItem(files.next());
+    }
+    request.maxFailedFileLoads(
+        (maxFailedFileLoads == null) ? request.getLoadArray().size() : maxFailedFileLoads);
+    return request;
+  }
+
+  private void launch(
+      int arrayNumber, BulkLoadArrayRequestModel request, BlockingQueue<ArrayOutcome> completions) {
+    CompletableFuture<BulkLoadArrayResultModel> future;
+    try {
+      future = launcher.apply(request);
+    } catch (RuntimeException ex) {
+      completions.add(new ArrayOutcome(arrayNumber, request, null, ex));
+      return;
+    }
+    future.whenComplete(
+        (result, ex) -> completions.add(new ArrayOutcome(arrayNumber, request, result, ex)));
+  }
+
+  // The result of one array job, or the error that failed it
+  private static final class ArrayOutcome {
+    private final int arrayNumber;
+    private final BulkLoadArrayRequestModel request;
+    private final BulkLoadArrayResultModel result;
+    private final Throwable error;
+
+    ArrayOutcome(
+        int arrayNumber,
+        BulkLoadArrayRequestModel request,
+        BulkLoadArrayResultModel result,
+        Throwable error) {
+      this.arrayNumber = arrayNumber;
+      this.request = request;
+      this.result = result;
+      this.error = (error instanceof CompletionException) ? error.getCause() : error;
+    }
+
+    List<BulkLoadFileResultModel> getResults() {
+      if (error == null && result != null && result.getLoadFileResults() != null) {
+        return result.getLoadFileResults();
+      }
+
+      String message = (error == null) ? "Array load returned no results" : error.getMessage();
+      List<BulkLoadFileResultModel> failed = new ArrayList<>();
+      for (BulkLoadFileModel file : request.getLoadArray()) {
+        failed.add(
+            new BulkLoadFileResultModel()
+                .sourcePath(file.getSourcePath())
+                .targetPath(file.getTargetPath())
+                .state(BulkLoadFileState.FAILED)
+                .error(message));
+      }
+      return failed;
+    }
+  }
+}
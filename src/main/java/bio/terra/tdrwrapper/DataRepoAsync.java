@@ -0,0 +1,318 @@
+package bio.terra.tdrwrapper;
+
+// This class provides a CompletableFuture version of the DataRepoWrap API. The synchronous data
+// repo calls run on a bounded thread pool. The job-based calls are launched on the pool and then
+// complete through the JobWatcher, so waiting on a job does not hold a thread.
+//
+// Cancelling a returned future interrupts the call if it is still running, or stops polling the
+// job if it has been launched. Cancelling does not stop a job that the data repo is running.
+
+import bio.terra.datarepo.model.BillingProfileModel;
+import bio.terra.datarepo.model.BillingProfileRequestModel;
+import bio.terra.datarepo.model.BulkLoadArrayRequestModel;
+import bio.terra.datarepo.model.BulkLoadArrayResultModel;
+import bio.terra.datarepo.model.DatasetModel;
+import bio.terra.datarepo.model.DatasetRequestModel;
+import bio.terra.datarepo.model.DatasetSummaryModel;
+import bio.terra.datarepo.model.DeleteResponseModel;
+import bio.terra.datarepo.model.EnumerateBillingProfileModel;
+import bio.terra.datarepo.model.EnumerateDatasetModel;
+import bio.terra.datarepo.model.EnumerateSnapshotModel;
+import bio.terra.datarepo.model.FileModel;
+import bio.terra.datarepo.model.IngestRequestModel;
+import bio.terra.datarepo.model.IngestResponseModel;
+import bio.terra.datarepo.model.PolicyResponse;
+import bio.terra.datarepo.model.SnapshotModel;
+import bio.terra.datarepo.model.SnapshotRequestModel;
+import bio.terra.datarepo.model.SnapshotSummaryModel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class DataRepoAsync {
+  public static final int DEFAULT_THREADS = 8;
+
+  private static final ScheduledExecutorService timeoutScheduler =
+      Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("async-timeout"));
+
+  private final DataRepoWrap dataRepoWrap;
+  private final ExecutorService executor;
+
+  public DataRepoAsync(DataRepoWrap dataRepoWrap) {
+    this(dataRepoWrap, DEFAULT_THREADS);
+  }
+
+  public DataRepoAsync(DataRepoWrap dataRepoWrap, int threads) {
+    this.dataRepoWrap = dataRepoWrap;
+    this.executor = Executors.newFixedThreadPool(threads, daemonThreadFactory("async-call"));
+  }
+
+  /**
+   * Return a future that completes like the input future, or exceptionally with a
+   * TimeoutException if the input does not complete in time. On timeout, the input future is
+   * cancelled.
+   *
+   * @param future future to bound
+   * @param timeout time to wait
+   * @param unit unit of the timeout
+   * @param <T> result type
+   * @return the bounded future
+   */
+  public static <T> CompletableFuture<T> withTimeout(
+      CompletableFuture<T> future, long timeout, TimeUnit unit) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicBoolean timedOut = new AtomicBoolean();
+    ScheduledFuture<?> timer =
+        timeoutScheduler.schedule(
+            () -> {
+              // Cancel the input before reporting the timeout, so callers see it cancelled
+              timedOut.set(true);
+              future.cancel(true);
+              result.completeExceptionally(
+                  new TimeoutException("Timed out after " + timeout + " " + unit));
+            },
+            timeout,
+            unit);
+    future.whenComplete(
+        (value, ex) -> {
+          timer.cancel(false);
+          if (timedOut.get()) {
+            return;
+          }
+          if (ex != null) {
+            result.completeExceptionally(unwrap(ex));
+          } else {
+            result.complete(value);
+          }
+        });
+    result.whenComplete(
+        (value, ex) -> {
+          if (result.isCancelled()) {
+            future.cancel(true);
+          }
+        });
+    return result;
+  }
+
+  /** Stop the thread pool. Calls that have not started are abandoned. */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  // -- billing profile alphabetically --
+
+  public CompletableFuture<PolicyResponse> addProfilePolicyMember(
+      String profileId, String policyName, String userEmail) {
+    return call(() -> dataRepoWrap.addProfilePolicyMember(profileId, policyName, userEmail));
+  }
+
+  public CompletableFuture<BillingProfileModel> createProfile(
+      BillingProfileRequestModel createProfileRequest) {
+    return job(() -> dataRepoWrap.createProfileFuture(createProfileRequest));
+  }
+
+  public CompletableFuture<DeleteResponseModel> deleteProfile(String profileId) {
+    return job(() -> dataRepoWrap.deleteProfileFuture(profileId));
+  }
+
+  public CompletableFuture<PolicyResponse> deleteProfilePolicyMember(
+      String profileId, String policyName, String userEmail) {
+    return call(() -> dataRepoWrap.deleteProfilePolicyMember(profileId, policyName, userEmail));
+  }
+
+  public CompletableFuture<EnumerateBillingProfileModel> enumerateProfiles(
+      Integer offset, Integer limit) {
+    return call(() -> dataRepoWrap.enumerateProfiles(offset, limit));
+  }
+
+  public CompletableFuture<BillingProfileModel> retrieveProfile(String profileId) {
+    return call(() -> dataRepoWrap.retrieveProfile(profileId));
+  }
+
+  public CompletableFuture<PolicyResponse> retrieveProfilePolicies(String id) {
+    return call(() -> dataRepoWrap.retrieveProfilePolicies(id));
+  }
+
+  // -- dataset --
+
+  public CompletableFuture<PolicyResponse> addDatasetPolicyMember(
+      String id, String policyName, String userEmail) {
+    return call(() -> dataRepoWrap.addDatasetPolicyMember(id, policyName, userEmail));
+  }
+
+  public CompletableFuture<DatasetSummaryModel> createDataset(
+      DatasetRequestModel createDatasetRequest) {
+    return job(() -> dataRepoWrap.createDatasetFuture(createDatasetRequest));
+  }
+
+  public CompletableFuture<DeleteResponseModel> deleteDataset(String id) {
+    return job(() -> dataRepoWrap.deleteDatasetFuture(id));
+  }
+
+  public CompletableFuture<PolicyResponse> deleteDatasetPolicyMember(
+      String id, String policyName, String email) {
+    return call(() -> dataRepoWrap.deleteDatasetPolicyMember(id, policyName, email));
+  }
+
+  public CompletableFuture<EnumerateDatasetModel> enumerateDatasets(
+      int offset, int limit, String sort, String direction, String filter) {
+    return call(() -> dataRepoWrap.enumerateDatasets(offset, limit, sort, direction, filter));
+  }
+
+  public CompletableFuture<IngestResponseModel> ingestDataset(
+      String id, IngestRequestModel ingestRequest) {
+    return job(() -> dataRepoWrap.ingestDatasetFuture(id, ingestRequest));
+  }
+
+  public CompletableFuture<DatasetModel> retrieveDataset(String id) {
+    return call(() -> dataRepoWrap.retrieveDataset(id));
+  }
+
+  public CompletableFuture<PolicyResponse> retrieveDatasetPolicies(String id) {
+    return call(() -> dataRepoWrap.retrieveDatasetPolicies(id));
+  }
+
+  // -- file --
+
+  public CompletableFuture<BulkLoadArrayResultModel> bulkFileLoadArray(
+      String id, BulkLoadArrayRequestModel loadRequest) {
+    return job(() -> dataRepoWrap.bulkFileLoadArrayFuture(id, loadRequest));
+  }
+
+  public CompletableFuture<FileModel> lookupFileById(String id, String fileId, int depth) {
+    return call(() -> dataRepoWrap.lookupFileById(id, fileId, depth));
+  }
+
+  public CompletableFuture<FileModel> lookupFileByPath(String id, String filePath, int depth) {
+    return call(() -> dataRepoWrap.lookupFileByPath(id, filePath, depth));
+  }
+
+  public CompletableFuture<FileModel> lookupSnapshotFileById(String id, String fileId, int depth) {
+    return call(() -> dataRepoWrap.lookupSnapshotFileById(id, fileId, depth));
+  }
+
+  public CompletableFuture<FileModel> lookupSnapshotFileByPath(
+      String id, String filePath, int depth) {
+    return call(() -> dataRepoWrap.lookupSnapshotFileByPath(id, filePath, depth));
+  }
+
+  // -- snapshot --
+
+  public CompletableFuture<PolicyResponse> addSnapshotPolicyMember(
+      String id, String policyName, String userEmail) {
+    return call(() -> dataRepoWrap.addSnapshotPolicyMember(id, policyName, userEmail));
+  }
+
+  public CompletableFuture<SnapshotSummaryModel> createSnapshot(
+      SnapshotRequestModel snapshotRequest) {
+    return job(() -> dataRepoWrap.createSnapshotFuture(snapshotRequest));
+  }
+
+  public CompletableFuture<DeleteResponseModel> deleteSnapshot(String id) {
+    return job(() -> dataRepoWrap.deleteSnapshotFuture(id));
+  }
+
+  public CompletableFuture<PolicyResponse> deleteSnapshotPolicyMember(
+      String id, String policyName, String userEmail) {
+    return call(() -> dataRepoWrap.deleteSnapshotPolicyMember(id, policyName, userEmail));
+  }
+
+  public CompletableFuture<EnumerateSnapshotModel> enumerateSnapshots(
+      int offset, int limit, String sort, String direction, String filter) {
+    return call(() -> dataRepoWrap.enumerateSnapshots(offset, limit, sort, direction, filter));
+  }
+
+  public CompletableFuture<SnapshotModel> retrieveSnapshot(String id) {
+    return call(() -> dataRepoWrap.retrieveSnapshot(id));
+  }
+
+  public CompletableFuture<PolicyResponse> retrieveSnapshotPolicies(String id) {
+    return call(() -> dataRepoWrap.retrieveSnapshotPolicies(id));
+  }
+
+  // -- implementation --
+
+  // Run a synchronous call on the pool. Cancelling the result interrupts the call. Errors also
+  // complete the result, so a waiting caller sees them instead of hanging.
+  private <T> CompletableFuture<T> call(Supplier<T> supplier) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Future<?> task =
+        executor.submit(
+            () -> {
+              try {
+                result.complete(supplier.get());
+              } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+              }
+            });
+    result.whenComplete(
+        (value, ex) -> {
+          if (result.isCancelled()) {
+            task.cancel(true);
+          }
+        });
+    return result;
+  }
+
+  // Launch a job on the pool, then complete from the job watcher. Cancelling the result either
+  // interrupts the launch or stops watching the job.
+  private <T> CompletableFuture<T> job(Supplier<WrapFuture<T>> launcher) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    CompletableFuture<WrapFuture<T>> launch = call(launcher);
+    launch.whenComplete(
+        (wrapFuture, launchEx) -> {
+          if (launchEx != null) {
+            result.completeExceptionally(unwrap(launchEx));
+            return;
+          }
+          CompletableFuture<T> jobFuture = wrapFuture.getCompletableFuture();
+          jobFuture.whenComplete(
+              (value, jobEx) -> {
+                if (jobEx != null) {
+                  result.completeExceptionally(unwrap(jobEx));
+                } else {
+                  result.complete(value);
+                }
+              });
+          if (result.isCancelled()) {
+            jobFuture.cancel(false);
+          }
+        });
+    result.whenComplete(
+        (value, ex) -> {
+          if (result.isCancelled()) {
+            if (!launch.cancel(true)) {
+              launch.thenAccept(wrapFuture -> wrapFuture.cancel(false));
+            }
+          }
+        });
+    return result;
+  }
+
+  // Dependent stages report failures wrapped in CompletionException; callers want the cause
+  private static Throwable unwrap(Throwable ex) {
+    if (ex instanceof CompletionException && ex.getCause() != null) {
+      return ex.getCause();
+    }
+    return ex;
+  }
+
+  private static ThreadFactory daemonThreadFactory(String prefix) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
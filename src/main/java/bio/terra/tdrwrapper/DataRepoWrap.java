@@ -5,6 +5,7 @@ package bio.terra.tdrwrapper;
 // status. Those exceptions have the ErrorModel deserialized.
 // 2. Futures for waiting for and retrieving results of async calls.
 // 3. Methods that automatically wait.
+// 4. Pagers that stream enumerate results a page at a time.
 
 import bio.terra.datarepo.api.RepositoryApi;
 import bio.terra.datarepo.api.ResourcesApi;
@@ -43,7 +44,11 @@ import bio.terra.tdrwrapper.exception.DataRepoUnknownClientException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.http.HttpStatusCodes;
+import java.io.InputStream;
 import java.util.List;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,12 +57,34 @@ public class DataRepoWrap {
   private static final Logger logger = LoggerFactory.getLogger(DataRepoWrap.class);
   private static final ObjectMapper objectMapper = new ObjectMapper();
 
+  // Enumerate endpoints used by the pagers
+  private static final String DATASETS_PATH = "/api/repository/v1/datasets";
+  private static final String SNAPSHOTS_PATH = "/api/repository/v1/snapshots";
+  private static final String PROFILES_PATH = "/api/resources/v1/profiles";
+
   private final RepositoryApi repositoryApi;
   private final ResourcesApi resourcesApi;
+  private final JobWatcher jobWatcher;
 
   public DataRepoWrap(RepositoryApi repositoryApi, ResourcesApi resourcesApi) {
+    this(repositoryApi, resourcesApi, PollBackoff.DEFAULT_MAX_MILLIS);
+  }
+
+  /**
+   * Construct a wrapper with a specific cap on the job polling interval.
+   *
+   * @param repositoryApi datarepo client repository api
+   * @param resourcesApi datarepo client resources api
+   * @param pollMaxMillis cap on the interval between job status polls
+   */
+  public DataRepoWrap(RepositoryApi repositoryApi, ResourcesApi resourcesApi, long pollMaxMillis) {
     this.repositoryApi = repositoryApi;
     this.resourcesApi = resourcesApi;
+    this.jobWatcher = new JobWatcher(repositoryApi, pollMaxMillis);
+  }
+
+  public JobWatcher getJobWatcher() {
+    return jobWatcher;
   }
 
   /**
@@ -122,6 +149,39 @@ public class DataRepoWrap {
     }
   }
 
+  private <T> WrapFuture<T> makeFuture(JobModel jobResponse, Class<T> targetClass) {
+    String jobId = jobResponse.getId();
+    return new WrapFuture<>(jobId, jobWatcher.watch(jobId, targetClass));
+  }
+
+  // Fetch one page of an enumerate endpoint as a raw stream, using the api client's connection and
+  // request filters. The response is closed when the caller closes the stream.
+  private InputStream fetchEnumeratePage(
+      String resourcePath, int offset, int limit, String filter) {
+    WebTarget target =
+        repositoryApi
+            .getApiClient()
+            .getHttpClient()
+            .target(repositoryApi.getApiClient().getBasePath())
+            .path(resourcePath)
+            .queryParam("offset", offset)
+            .queryParam("limit", limit);
+    if (filter != null) {
+      target = target.queryParam("filter", filter);
+    }
+    Response response = target.request(MediaType.APPLICATION_JSON).get();
+    if (!HttpStatusCodes.isSuccess(response.getStatus())) {
+      try {
+        String responseBody = response.readEntity(String.class);
+        throw fromApiException(
+            new ApiException(response.getStatus(), response.getStringHeaders(), responseBody));
+      } finally {
+        response.close();
+      }
+    }
+    return response.readEntity(InputStream.class);
+  }
+
   // -- billing profile alphabetically --
 
   public PolicyResponse addProfilePolicyMember(
@@ -141,7 +201,7 @@ public class DataRepoWrap {
   public WrapFuture<BillingProfileModel> createProfileFuture(
       BillingProfileRequestModel createProfileRequest) {
     JobModel jobResponse = apiCallThrow(() -> resourcesApi.createProfile(createProfileRequest));
-    return new WrapFuture<>(jobResponse.getId(), repositoryApi, BillingProfileModel.class);
+    return makeFuture(jobResponse, BillingProfileModel.class);
   }
 
   public DeleteResponseModel deleteProfile(String profileId) {
@@ -151,7 +211,7 @@ public class DataRepoWrap {
 
   public WrapFuture<DeleteResponseModel> deleteProfileFuture(String profileId) {
     JobModel jobResponse = apiCallThrow(() -> resourcesApi.deleteProfile(profileId));
-    return new WrapFuture<>(jobResponse.getId(), repositoryApi, DeleteResponseModel.class);
+    return makeFuture(jobResponse, DeleteResponseModel.class);
   }
 
   public PolicyResponse deleteProfilePolicyMember(
@@ -165,6 +225,13 @@ public class DataRepoWrap {
     return DataRepoWrap.apiCallThrow(() -> resourcesApi.enumerateProfiles(offset, limit));
   }
 
+  public EnumeratePager<BillingProfileModel> pageProfiles(int pageSize) {
+    return new EnumeratePager<>(
+        (offset, limit) -> fetchEnumeratePage(PROFILES_PATH, offset, limit, null),
+        pageSize,
+        BillingProfileModel.class);
+  }
+
   public BillingProfileModel retrieveProfile(String profileId) {
     return DataRepoWrap.apiCallThrow(() -> resourcesApi.retrieveProfile(profileId));
   }
@@ -192,7 +259,7 @@ public class DataRepoWrap {
 
     JobModel jobResponse = apiCallThrow(() -> repositoryApi.createDataset(createDatasetRequest));
 
-    return new WrapFuture<>(jobResponse.getId(), repositoryApi, DatasetSummaryModel.class);
+    return makeFuture(jobResponse, DatasetSummaryModel.class);
   }
 
   public DeleteResponseModel deleteDataset(String id) {
@@ -203,7 +270,7 @@ public class DataRepoWrap {
   public WrapFuture<DeleteResponseModel> deleteDatasetFuture(String id) {
     JobModel jobResponse = apiCallThrow(() -> repositoryApi.deleteDataset(id));
 
-    return new WrapFuture<>(jobResponse.getId(), repositoryApi, DeleteResponseModel.class);
+    return makeFuture(jobResponse, DeleteResponseModel.class);
   }
 
   public PolicyResponse deleteDatasetPolicyMember(String id, String policyName, String email) {
@@ -216,6 +283,13 @@ public class DataRepoWrap {
         () -> repositoryApi.enumerateDatasets(offset, limit, sort, direction, filter));
   }
 
+  public EnumeratePager<DatasetSummaryModel> pageDatasets(String filter, int pageSize) {
+    return new EnumeratePager<>(
+        (offset, limit) -> fetchEnumeratePage(DATASETS_PATH, offset, limit, filter),
+        pageSize,
+        DatasetSummaryModel.class);
+  }
+
   public IngestResponseModel ingestDataset(String id, IngestRequestModel ingestRequest) {
     WrapFuture<IngestResponseModel> wrapFuture = ingestDatasetFuture(id, ingestRequest);
     return wrapFuture.getResult();
@@ -224,7 +298,7 @@ public class DataRepoWrap {
   public WrapFuture<IngestResponseModel> ingestDatasetFuture(
       String id, IngestRequestModel ingestRequest) {
     JobModel jobResponse = apiCallThrow(() -> repositoryApi.ingestDataset(id, ingestRequest));
-    return new WrapFuture<>(jobResponse.getId(), repositoryApi, IngestResponseModel.class);
+    return makeFuture(jobResponse, IngestResponseModel.class);
   }
 
   public DatasetModel retrieveDataset(String id) {
@@ -246,7 +320,7 @@ public class DataRepoWrap {
   public WrapFuture<BulkLoadArrayResultModel> bulkFileLoadArrayFuture(
       String id, BulkLoadArrayRequestModel loadRequest) {
     JobModel jobResponse = apiCallThrow(() -> repositoryApi.bulkFileLoadArray(id, loadRequest));
-    return new WrapFuture<>(jobResponse.getId(), repositoryApi, BulkLoadArrayResultModel.class);
+    return makeFuture(jobResponse, BulkLoadArrayResultModel.class);
   }
 
   public FileModel lookupFileById(String id, String fileId, int depth) {
@@ -280,7 +354,7 @@ public class DataRepoWrap {
   public WrapFuture<SnapshotSummaryModel> createSnapshotFuture(
       SnapshotRequestModel snapshotRequest) {
     JobModel jobResponse = apiCallThrow(() -> repositoryApi.createSnapshot(snapshotRequest));
-    return new WrapFuture<>(jobResponse.getId(), repositoryApi, SnapshotSummaryModel.class);
+    return makeFuture(jobResponse, SnapshotSummaryModel.class);
   }
 
   public DeleteResponseModel deleteSnapshot(String id) {
@@ -291,7 +365,7 @@ public class DataRepoWrap {
   public WrapFuture<DeleteResponseModel> deleteSnapshotFuture(String id) {
     JobModel jobResponse = apiCallThrow(() -> repositoryApi.deleteSnapshot(id));
 
-    return new WrapFuture<>(jobResponse.getId(), repositoryApi, DeleteResponseModel.class);
+    return makeFuture(jobResponse, DeleteResponseModel.class);
   }
 
   public PolicyResponse deleteSnapshotPolicyMember(String id, String policyName, String userEmail) {
@@ -304,6 +378,13 @@ public class DataRepoWrap {
         () -> repositoryApi.enumerateSnapshots(offset, limit, sort, direction, filter));
   }
 
+  public EnumeratePager<SnapshotSummaryModel> pageSnapshots(String filter, int pageSize) {
+    return new EnumeratePager<>(
+        (offset, limit) -> fetchEnumeratePage(SNAPSHOTS_PATH, offset, limit, filter),
+        pageSize,
+        SnapshotSummaryModel.class);
+  }
+
   public SnapshotModel retrieveSnapshot(String id) {
     return apiCallThrow(() -> repositoryApi.retrieveSnapshot(id));
   }
@@ -0,0 +1,182 @@
+package bio.terra.tdrwrapper;
+
+import bio.terra.tdrwrapper.exception.DataRepoUnknownClientException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.http.HttpStatusCodes;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * EnumeratePager iterates over the items of a data repo enumerate endpoint one page at a time. Each
+ * page is parsed with the Jackson streaming parser as it is read, so at most one item is held in
+ * memory and we can stop reading as soon as we find what we want. Items are returned as JSON trees;
+ * use {@link #convert(JsonNode)} or {@link #findFirst(String, String)} to get the model object.
+ *
+ * <p>The enumerate responses have the form: {"total": N, "items": [ {...}, {...} ]}
+ *
+ * @param <T> model class of the items
+ */
+public class EnumeratePager<T> implements Iterator<JsonNode> {
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  private static final ObjectMapper objectMapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private static final String ITEMS_FIELD = "items";
+
+  private final PageSource pageSource;
+  private final int pageSize;
+  private final Class<T> itemClass;
+
+  private InputStream pageStream;
+  private JsonParser parser;
+  private int offset;
+  private int pageCount; // items read from the current page
+  private JsonNode nextItem;
+  private boolean finished;
+
+  /** Source of one page of an enumerate response. The caller closes the returned stream. */
+  @FunctionalInterface
+  public interface PageSource {
+    InputStream fetch(int offset, int limit) throws IOException;
+  }
+
+  public EnumeratePager(PageSource pageSource, int pageSize, Class<T> itemClass) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+    }
+    this.pageSource = pageSource;
+    this.pageSize = pageSize;
+    this.itemClass = itemClass;
+  }
+
+  /**
+   * Find the first item whose field exactly matches a value. Paging stops at the first match.
+   *
+   * @param fieldName JSON name of a string field of the item
+   * @param value value to match
+   * @return the matching item converted to the model class; null if there is no match
+   */
+  public T findFirst(String fieldName, String value) {
+    try {
+      while (hasNext()) {
+        JsonNode item = next();
+        JsonNode field = item.get(fieldName);
+        if (field != null && StringUtils.equals(field.asText(), value)) {
+          return convert(item);
+        }
+      }
+      return null;
+    } finally {
+      close();
+    }
+  }
+
+  public T convert(JsonNode item) {
+    return objectMapper.convertValue(item, itemClass);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextItem == null && !finished) {
+      nextItem = readItem();
+    }
+    return nextItem != null;
+  }
+
+  @Override
+  public JsonNode next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    JsonNode item = nextItem;
+    nextItem = null;
+    return item;
+  }
+
+  /** Release the current page. Safe to call more than once. */
+  public void close() {
+    finished = true;
+    closePage();
+  }
+
+  // Read the next item, fetching a new page if the current page is used up.
+  // Returns null when there are no more items.
+  private JsonNode readItem() {
+    try {
+      while (true) {
+        if (parser == null) {
+          openPage();
+          if (parser == null) {
+            close();
+            return null;
+          }
+        }
+
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+          pageCount++;
+          return parser.readValueAsTree();
+        }
+
+        // End of the items array. A short page means there is nothing more to read.
+        boolean lastPage = pageCount < pageSize;
+        offset += pageCount;
+        closePage();
+        if (lastPage) {
+          close();
+          return null;
+        }
+      }
+    } catch (IOException ex) {
+      close();
+      throw new DataRepoUnknownClientException(
+          "Error reading enumerate response: " + ex.getMessage(),
+          HttpStatusCodes.STATUS_CODE_SERVER_ERROR,
+          null,
+          ex);
+    }
+  }
+
+  // Fetch the next page and position the parser at the start of the items array.
+  // Leaves parser null if the response has no items.
+  private void openPage() throws IOException {
+    pageStream = pageSource.fetch(offset, pageSize);
+    pageCount = 0;
+    parser = objectMapper.getFactory().createParser(pageStream);
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IOException("Expected an object at the start of the enumerate response");
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken valueToken = parser.nextToken();
+      if (StringUtils.equals(fieldName, ITEMS_FIELD) && valueToken == JsonToken.START_ARRAY) {
+        return;
+      }
+      parser.skipChildren();
+    }
+    closePage();
+  }
+
+  private void closePage() {
+    try {
+      if (parser != null) {
+        parser.close();
+      }
+      if (pageStream != null) {
+        pageStream.close();
+      }
+    } catch (IOException ex) {
+      // Nothing useful to do; we are done with the page
+    } finally {
+      parser = null;
+      pageStream = null;
+    }
+  }
+}
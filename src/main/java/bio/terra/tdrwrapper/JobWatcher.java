@@ -0,0 +1,178 @@
+package bio.terra.tdrwrapper;
+
+import bio.terra.datarepo.api.RepositoryApi;
+import bio.terra.datarepo.client.ApiResponse;
+import bio.terra.datarepo.model.JobModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JobWatcher tracks any number of outstanding data repo jobs and completes a CompletableFuture for
+ * each one when its job finishes. All polling is done by one scheduler thread: each tick sweeps
+ * the jobs that are due, polls them, and reschedules itself for the earliest next due time. Each
+ * job keeps its own PollBackoff, so new jobs are polled quickly and long-running jobs are polled
+ * rarely.
+ *
+ * <p>The scheduler thread is a daemon thread, so an outstanding watch does not keep the CLI
+ * process alive.
+ */
+public class JobWatcher {
+  private static final Logger logger = LoggerFactory.getLogger(JobWatcher.class);
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final AtomicInteger watcherCount = new AtomicInteger();
+
+  private final RepositoryApi repositoryApi;
+  private final long pollMaxMillis;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, WatchedJob<?>> jobs = new ConcurrentHashMap<>();
+
+  // Protected by synchronizing on this
+  private ScheduledFuture<?> nextTick;
+  private long nextTickMillis;
+
+  public JobWatcher(RepositoryApi repositoryApi, long pollMaxMillis) {
+    this.repositoryApi = repositoryApi;
+    this.pollMaxMillis = Math.max(pollMaxMillis, PollBackoff.DEFAULT_INITIAL_MILLIS);
+    String threadName = "job-watcher-" + watcherCount.incrementAndGet();
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, threadName);
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Start watching a job.
+   *
+   * @param jobId id of the job returned by the data repo
+   * @param targetClass class of the job result
+   * @param <T> job result type
+   * @return future that completes with the job result, or exceptionally with a
+   *     DataRepoClientException if the job fails
+   */
+  public <T> CompletableFuture<T> watch(String jobId, Class<T> targetClass) {
+    WatchedJob<T> job =
+        new WatchedJob<>(
+            jobId, targetClass, new PollBackoff(PollBackoff.DEFAULT_INITIAL_MILLIS, pollMaxMillis));
+    jobs.put(jobId, job);
+    // Cancelling the future stops the polling
+    job.future.whenComplete((result, ex) -> jobs.remove(jobId, job));
+    scheduleTick(job.nextPollMillis);
+    return job.future;
+  }
+
+  public int getWatchedCount() {
+    return jobs.size();
+  }
+
+  /** Stop polling. Outstanding futures are cancelled. */
+  public void shutdown() {
+    scheduler.shutdownNow();
+    for (WatchedJob<?> job : jobs.values()) {
+      job.future.cancel(false);
+    }
+    jobs.clear();
+  }
+
+  private synchronized void scheduleTick(long dueMillis) {
+    if (nextTick != null && !nextTick.isDone() && nextTickMillis <= dueMillis) {
+      return; // an earlier tick will pick it up
+    }
+    if (nextTick != null) {
+      nextTick.cancel(false);
+    }
+    long delay = Math.max(0L, dueMillis - System.currentTimeMillis());
+    nextTickMillis = dueMillis;
+    nextTick = scheduler.schedule(this::tick, delay, TimeUnit.MILLISECONDS);
+  }
+
+  // Poll every job that is due, then schedule the next sweep
+  private void tick() {
+    long now = System.currentTimeMillis();
+    Iterator<WatchedJob<?>> iterator = jobs.values().iterator();
+    while (iterator.hasNext()) {
+      WatchedJob<?> job = iterator.next();
+      if (job.future.isDone() || (job.nextPollMillis <= now && poll(job))) {
+        iterator.remove();
+      }
+    }
+
+    // Jobs added while we were sweeping may not have been visited, so find the earliest due
+    // time after clearing nextTick. Any watch that happens after this block schedules its own tick.
+    synchronized (this) {
+      nextTick = null;
+      long earliest = Long.MAX_VALUE;
+      for (WatchedJob<?> job : jobs.values()) {
+        earliest = Math.min(earliest, job.nextPollMillis);
+      }
+      if (earliest != Long.MAX_VALUE) {
+        scheduleTick(earliest);
+      }
+    }
+  }
+
+  // Returns true if the job is finished and its future completed
+  private <T> boolean poll(WatchedJob<T> job) {
+    try {
+      ApiResponse<JobModel> response =
+          DataRepoWrap.apiCallThrow(() -> repositoryApi.retrieveJobWithHttpInfo(job.jobId));
+      JobModel jobModel = response.getData();
+      if (jobModel.getJobStatus().equals(JobModel.JobStatusEnum.RUNNING)) {
+        job.pollCount++;
+        long delayMillis =
+            job.backoff.nextDelayMillis(PollBackoff.hintFromHeaders(response.getHeaders()));
+        job.nextPollMillis = System.currentTimeMillis() + delayMillis;
+        logger.debug(
+            "Poll: try #{} next in {}ms job {} {}",
+            job.pollCount,
+            delayMillis,
+            job.jobId,
+            jobModel.getDescription());
+        return false;
+      }
+
+      Object result = DataRepoWrap.apiCallThrow(() -> repositoryApi.retrieveJobResult(job.jobId));
+      T value = convertResult(result, job.targetClass);
+      // Stop watching before completing, so anyone woken by the future sees the job gone
+      jobs.remove(job.jobId, job);
+      job.future.complete(value);
+    } catch (Throwable ex) {
+      jobs.remove(job.jobId, job);
+      job.future.completeExceptionally(ex);
+    }
+    return true;
+  }
+
+  // The job result is read as generic JSON: maps, lists and values
+  static <T> T convertResult(Object result, Class<T> targetClass) {
+    return objectMapper.convertValue(result, targetClass);
+  }
+
+  private static final class WatchedJob<T> {
+    private final String jobId;
+    private final Class<T> targetClass;
+    private final PollBackoff backoff;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private volatile long nextPollMillis;
+    private int pollCount;
+
+    WatchedJob(String jobId, Class<T> targetClass, PollBackoff backoff) {
+      this.jobId = jobId;
+      this.targetClass = targetClass;
+      this.backoff = backoff;
+      this.nextPollMillis = System.currentTimeMillis() + backoff.nextDelayMillis(null);
+    }
+  }
+}
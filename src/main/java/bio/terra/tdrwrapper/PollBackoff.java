@@ -0,0 +1,106 @@
+package bio.terra.tdrwrapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * PollBackoff computes the delay between job status polls. It starts with a short interval, so
+ * quick jobs are noticed quickly, and backs off exponentially up to a cap, so long jobs do not
+ * generate a flood of retrieveJob calls. Each delay is reduced by a random jitter so that many
+ * pollers do not fall into lock step.
+ *
+ * <p>If the server provides a hint about when to poll again (the Retry-After header), the hint is
+ * used instead of the computed delay. The hint may be longer than the cap; it is only bounded by
+ * the initial interval and by a sanity ceiling, so a bad header cannot stop polling.
+ *
+ * <p>A PollBackoff holds the state of one polling sequence and is not thread safe.
+ */
+public class PollBackoff {
+  public static final long DEFAULT_INITIAL_MILLIS = 50;
+  public static final long DEFAULT_MAX_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  public static final long MAX_HINT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private static final String RETRY_AFTER_HEADER = "Retry-After";
+  private static final double MULTIPLIER = 2.0;
+  private static final double JITTER_FRACTION = 0.2;
+
+  private final long initialMillis;
+  private final long maxMillis;
+  private long currentMillis;
+
+  public PollBackoff() {
+    this(DEFAULT_INITIAL_MILLIS, DEFAULT_MAX_MILLIS);
+  }
+
+  public PollBackoff(long initialMillis, long maxMillis) {
+    if (initialMillis <= 0 || maxMillis < initialMillis) {
+      throw new IllegalArgumentException(
+          "Invalid poll intervals: initial " + initialMillis + "ms; max " + maxMillis + "ms");
+    }
+    this.initialMillis = initialMillis;
+    this.maxMillis = maxMillis;
+    this.currentMillis = initialMillis;
+  }
+
+  public long getInitialMillis() {
+    return initialMillis;
+  }
+
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+
+  /**
+   * Compute the next delay and advance the backoff.
+   *
+   * @param hintMillis server-provided delay; null if there is no hint
+   * @return milliseconds to wait before the next poll
+   */
+  public long nextDelayMillis(Long hintMillis) {
+    if (hintMillis != null && hintMillis >= 0) {
+      return Math.max(initialMillis, Math.min(hintMillis, MAX_HINT_MILLIS));
+    }
+
+    long delay = currentMillis;
+    currentMillis = Math.min((long) (currentMillis * MULTIPLIER), maxMillis);
+
+    double jitter = ThreadLocalRandom.current().nextDouble() * JITTER_FRACTION;
+    return Math.max(1L, (long) (delay * (1.0 - jitter)));
+  }
+
+  /** Reset the backoff to the initial interval. */
+  public void reset() {
+    currentMillis = initialMillis;
+  }
+
+  /**
+   * Extract a poll-after hint from response headers. We honor the delta-seconds form of the
+   * Retry-After header; the HTTP-date form is ignored.
+   *
+   * @param headers response headers; may be null
+   * @return hint in milliseconds or null if there is no usable hint
+   */
+  public static Long hintFromHeaders(Map<String, List<String>> headers) {
+    if (headers == null) {
+      return null;
+    }
+    for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+      if (StringUtils.equalsIgnoreCase(entry.getKey(), RETRY_AFTER_HEADER)
+          && entry.getValue() != null
+          && !entry.getValue().isEmpty()) {
+        String value = StringUtils.trim(entry.getValue().get(0));
+        if (StringUtils.isNumeric(value)) {
+          try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+          } catch (NumberFormatException ex) {
+            return null;
+          }
+        }
+      }
+    }
+    return null;
+  }
+}
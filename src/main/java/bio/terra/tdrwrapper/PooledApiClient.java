@@ -0,0 +1,54 @@
+package bio.terra.tdrwrapper;
+
+import bio.terra.datarepo.client.ApiClient;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.filter.EncodingFilter;
+import org.glassfish.jersey.message.GZipEncoder;
+
+/**
+ * PooledApiClient is the datarepo ApiClient on a pooled, keep-alive Apache connector instead of the
+ * default HttpURLConnection one. Connections to the data repo stay open between requests. Only the
+ * first request on each connection pays for the TCP and TLS handshakes, and parallel callers get up
+ * to maxConnectionsPerRoute connections of their own rather than queuing. Responses are requested
+ * gzip encoded and decoded as they are read.
+ */
+public class PooledApiClient extends ApiClient {
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 16;
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  @SuppressFBWarnings(
+      value = "UR_UNINIT_READ_CALLED_FROM_SUPER_CONSTRUCTOR",
+      justification = "The client built by the base constructor is replaced here")
+  public PooledApiClient(int maxConnectionsPerRoute) {
+    connectionManager = new PoolingHttpClientConnectionManager();
+    // We only talk to one data repo, so the route limit is the pool limit
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    connectionManager.setMaxTotal(maxConnectionsPerRoute);
+    // The base constructor built its http client before the pool existed
+    setHttpClient(buildHttpClient(isDebugging()));
+  }
+
+  @Override
+  protected void performAdditionalClientConfiguration(ClientConfig clientConfig) {
+    if (connectionManager == null) {
+      return; // called from the base constructor; that client is never used
+    }
+    clientConfig.connectorProvider(new ApacheConnectorProvider());
+    clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+    // setDebugging rebuilds the http client; the old one must not take the pool with it
+    clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER_SHARED, true);
+    clientConfig.register(EncodingFilter.class);
+    clientConfig.register(GZipEncoder.class);
+  }
+
+  /** Close the http client and the pooled connections. */
+  public void close() {
+    getHttpClient().close();
+    connectionManager.shutdown();
+  }
+}
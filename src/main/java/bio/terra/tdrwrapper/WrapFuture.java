@@ -1,49 +1,49 @@
 package bio.terra.tdrwrapper;
 
-import bio.terra.datarepo.api.RepositoryApi;
-import bio.terra.datarepo.model.JobModel;
+import bio.terra.tdrwrapper.exception.DataRepoClientException;
 import bio.terra.tdrwrapper.exception.DataRepoUnknownClientException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.http.HttpStatusCodes;
-import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+// View of a data repo job being polled by a JobWatcher. No network calls are made here; the
+// watcher completes the underlying future when the job finishes.
 public class WrapFuture<T> implements Future<T> {
-  private static final Logger logger = LoggerFactory.getLogger(WrapFuture.class);
-  private static final ObjectMapper objectMapper = new ObjectMapper();
-
   private static final long MAX_GET_WAIT_HOURS = 2;
-  private static final int POLL_INTERVALS_SECONDS = 5;
 
   private final String jobId;
-  private final RepositoryApi repositoryApi;
-  private final Class<T> targetClass;
+  private final CompletableFuture<T> future;
 
-  public WrapFuture(String jobId, RepositoryApi repositoryApi, Class<T> targetClass) {
+  public WrapFuture(String jobId, CompletableFuture<T> future) {
     this.jobId = jobId;
-    this.repositoryApi = repositoryApi;
-    this.targetClass = targetClass;
+    this.future = future;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public CompletableFuture<T> getCompletableFuture() {
+    return future;
   }
 
   @Override
   public boolean cancel(boolean mayInterruptIfRunning) {
-    return false;
+    // Stops polling; the job itself keeps running in the data repo
+    return future.cancel(mayInterruptIfRunning);
   }
 
   @Override
   public boolean isCancelled() {
-    return false;
+    return future.isCancelled();
   }
 
   @Override
   public boolean isDone() {
-    JobModel job = DataRepoWrap.apiCallThrow(() -> repositoryApi.retrieveJob(jobId));
-    return !job.getJobStatus().equals(JobModel.JobStatusEnum.RUNNING);
+    return future.isDone();
   }
 
   @Override
@@ -58,34 +58,30 @@ public class WrapFuture<T> implements Future<T> {
   @Override
   public T get(long timeout, TimeUnit unit)
       throws InterruptedException, ExecutionException, TimeoutException {
-    Instant endTime = Instant.now().plusSeconds(TimeUnit.SECONDS.convert(timeout, unit));
-    int tryCount = 0;
-    while (endTime.isAfter(Instant.now())) {
-      JobModel job = DataRepoWrap.apiCallThrow(() -> repositoryApi.retrieveJob(jobId));
-      if (job.getJobStatus().equals(JobModel.JobStatusEnum.RUNNING)) {
-        tryCount++;
-        logger.debug(
-            "Sleep: try #{} until {} job {} {}", tryCount, endTime, jobId, job.getDescription());
-        TimeUnit.SECONDS.sleep(POLL_INTERVALS_SECONDS);
-      } else {
-        break;
-      }
-    }
-
-    Object result = DataRepoWrap.apiCallThrow(() -> repositoryApi.retrieveJobResult(jobId));
-    return objectMapper.convertValue(result, targetClass);
+    return future.get(timeout, unit);
   }
 
-  // Variant of get() that replaces the exceptions with runtime exceptions
+  // Variant of get() that replaces the exceptions with runtime exceptions. Data repo errors from
+  // the job are rethrown as is, so callers see the same exceptions as from the synchronous calls.
   public T getResult() {
     try {
       return get();
-    } catch (InterruptedException | ExecutionException ex) {
-      throw new DataRepoUnknownClientException(
-          "Failed to get result of async request",
-          HttpStatusCodes.STATUS_CODE_SERVER_ERROR,
-          null,
-          ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof DataRepoClientException) {
+        throw (DataRepoClientException) ex.getCause();
+      }
+      throw makeUnknownException(ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw makeUnknownException(ex);
     }
   }
+
+  private static DataRepoUnknownClientException makeUnknownException(Exception ex) {
+    return new DataRepoUnknownClientException(
+        "Failed to get result of async request",
+        HttpStatusCodes.STATUS_CODE_SERVER_ERROR,
+        null,
+        ex);
+  }
 }
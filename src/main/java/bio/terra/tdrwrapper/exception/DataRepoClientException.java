@@ -33,7 +33,7 @@ public abstract class DataRepoClientException extends RuntimeException {
         "%s (%d) %s",
         super.toString(),
         statusCode,
-        !errorDetails.isEmpty()
+        (errorDetails != null && !errorDetails.isEmpty())
             ? String.format(" Details: %s", String.join("; ", errorDetails))
             : "");
   }
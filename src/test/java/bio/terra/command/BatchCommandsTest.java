@@ -0,0 +1,79 @@
+package bio.terra.command;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import bio.terra.parser.ParsedResult;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class BatchCommandsTest {
+
+  @Test
+  public void testOutputInFileOrder() throws Exception {
+    File file = File.createTempFile("batch", ".txt");
+    Files.write(
+        file.toPath(),
+        Arrays.asList("echo 30 a", "", "# comment", "echo 1 'b c'", "fail", "echo 10 d"),
+        StandardCharsets.UTF_8);
+    ParsedResult result = new ParsedResult();
+    result.setArgument("file", file.getPath());
+    result.setArgument("jobs", "3");
+
+    PrintStream stdout = System.out;
+    PrintStream stderr = System.err;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    int status = 0;
+    CommandUtils.setEmbedded(true);
+    try {
+      System.setOut(new PrintStream(out, true));
+      System.setErr(new PrintStream(err, true));
+      BatchCommands.dispatchCommand(
+          CommandEnum.COMMAND_BATCH,
+          result,
+          args -> {
+            if (args[0].equals("fail")) {
+              CommandUtils.printErrorAndExit("failed");
+            }
+            // Earlier lines take longer, so they finish last
+            try {
+              Thread.sleep(Long.parseLong(args[1]));
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+            System.out.println(args[2]);
+            return 0;
+          });
+    } catch (ExitException ex) {
+      status = ex.getStatus();
+    } finally {
+      CommandUtils.setEmbedded(false);
+      System.setOut(stdout);
+      System.setErr(stderr);
+      Files.delete(file.toPath());
+    }
+
+    String newline = System.lineSeparator();
+    assertThat("batch fails", status, equalTo(1));
+    assertThat(
+        "stdout in order",
+        out.toString(StandardCharsets.UTF_8.name()),
+        equalTo("a" + newline + "b c" + newline + "d" + newline));
+    String summary = err.toString(StandardCharsets.UTF_8.name());
+    assertThat("error first", summary.startsWith("failed" + newline), equalTo(true));
+    assertThat("counts", summary.contains("Batch: 4 commands, 1 failed"), equalTo(true));
+    assertThat("failed line", summary.contains("     5      1  fail"), equalTo(true));
+  }
+}
@@ -0,0 +1,94 @@
+package bio.terra.command;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import bio.terra.common.category.CLIStartup;
+import bio.terra.common.category.CLIUnit;
+import bio.terra.endpoints.CLITestingUtils;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Startup tests run jadecli in a new JVM, the way a user does, with a home directory of its own so
+ * that no daemon or session of the person running the tests is used.
+ */
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class CommandRunnerTest {
+  // Wall time for a cold JVM to run help; override with -Djadecli.startupBudgetMillis. The default
+  // is generous, since check runs this on whatever machine does the build.
+  private static final long DEFAULT_STARTUP_BUDGET_MILLIS = 5000;
+  // -verbose:class lines are "[Loaded java.lang.Object from ...]" on Java 8 and
+  // "[0.010s][info][class,load] java.lang.Object source: ..." from Java 9
+  private static final String[] LOADED_TAGS = {"[Loaded ", "[class,load] "};
+
+  // Timing depends on the machine, so this runs only in testCLIStartup, as part of check
+  @Test
+  @Category(CLIStartup.class)
+  public void testStartupWithinBudget() throws Exception {
+    long budget = Long.getLong("jadecli.startupBudgetMillis", DEFAULT_STARTUP_BUDGET_MILLIS);
+    // The first run warms the file system cache for the jars
+    runJadecli(false, "help");
+    long start = System.nanoTime();
+    List<String> output = runJadecli(false, "help");
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertTrue("help prints the commands", output.size() > 10);
+    assertTrue("help took " + elapsed + "ms; the budget is " + budget + "ms", elapsed <= budget);
+  }
+
+  @Test
+  public void testCommandLoadsOnlyItsModule() throws Exception {
+    List<String> loaded = loadedClasses(runJadecli(true, "pwd"));
+
+    assertTrue("session module", loaded.contains(SessionCommands.class.getName()));
+    for (String name : loaded) {
+      assertFalse("other module " + name, isOtherModule(name));
+      assertFalse("data repo client " + name, name.startsWith("bio.terra.datarepo."));
+      assertFalse("Jackson " + name, name.startsWith("com.fasterxml.jackson.databind."));
+      assertFalse("Google " + name, name.startsWith("com.google."));
+      assertFalse("Jersey " + name, name.startsWith("org.glassfish.jersey."));
+    }
+  }
+
+  // Run Main in a new JVM, with a home directory of its own, and return its output lines
+  private List<String> runJadecli(boolean verboseClass, String... args)
+      throws IOException, InterruptedException {
+    File home = CLITestingUtils.createHome();
+    try {
+      List<String> jvmOptions =
+          verboseClass ? Collections.singletonList("-verbose:class") : Collections.emptyList();
+      return CLITestingUtils.runJadecli(home, jvmOptions, args);
+    } finally {
+      CLITestingUtils.deleteHome(home);
+    }
+  }
+
+  private static boolean isOtherModule(String name) {
+    return name.startsWith("bio.terra.command.")
+        && name.endsWith("Commands")
+        && !name.equals(SessionCommands.class.getName());
+  }
+
+  private static List<String> loadedClasses(List<String> output) {
+    List<String> names = new ArrayList<>();
+    for (String line : output) {
+      for (String tag : LOADED_TAGS) {
+        int index = line.indexOf(tag);
+        if (index >= 0) {
+          names.add(line.substring(index + tag.length()).split(" ")[0]);
+        }
+      }
+    }
+    return names;
+  }
+}
@@ -0,0 +1,71 @@
+package bio.terra.command;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class Crc32cTest {
+
+  @Test
+  public void testKnownValue() {
+    Crc32c crc = new Crc32c();
+    byte[] bytes = "123456789".getBytes(StandardCharsets.US_ASCII);
+    crc.update(bytes, 0, bytes.length);
+    assertThat("check value", Crc32c.toHex(crc.getValue()), equalTo("e3069283"));
+
+    crc.reset();
+    assertThat("reset", crc.getValue(), equalTo(0L));
+  }
+
+  @Test
+  public void testBuffersMatchBytes() {
+    byte[] bytes = new byte[10007];
+    new Random(3).nextBytes(bytes);
+
+    Crc32c byteAtATime = new Crc32c();
+    for (byte b : bytes) {
+      byteAtATime.update(b);
+    }
+
+    Crc32c heap = new Crc32c();
+    heap.update(ByteBuffer.wrap(bytes));
+
+    Crc32c direct = new Crc32c();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+    direct.update(buffer);
+
+    assertThat("heap buffer", heap.getValue(), equalTo(byteAtATime.getValue()));
+    assertThat("direct buffer", direct.getValue(), equalTo(byteAtATime.getValue()));
+    assertThat("buffer consumed", buffer.hasRemaining(), equalTo(false));
+  }
+
+  @Test
+  public void testCombine() {
+    byte[] bytes = new byte[5000];
+    new Random(5).nextBytes(bytes);
+    Crc32c whole = new Crc32c();
+    whole.update(bytes, 0, bytes.length);
+
+    Crc32c first = new Crc32c();
+    first.update(bytes, 0, 1234);
+    Crc32c second = new Crc32c();
+    second.update(bytes, 1234, bytes.length - 1234);
+
+    assertThat(
+        "combined halves",
+        Crc32c.combine(first.getValue(), second.getValue(), bytes.length - 1234),
+        equalTo(whole.getValue()));
+    assertThat("empty second range", Crc32c.combine(7L, 0L, 0), equalTo(7L));
+  }
+}
@@ -0,0 +1,160 @@
+package bio.terra.command;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import bio.terra.model.DRElement;
+import bio.terra.model.DRElementType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class DRCommandsTest {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private PrintStream savedOut;
+  private ByteArrayOutputStream captured;
+
+  // A directory with fixed children, or a file when it has none
+  private static class FakeElement extends DRElement {
+    private final String name;
+    private final List<DRElement> children;
+
+    FakeElement(String name, DRElement... children) {
+      this.name = name;
+      this.children = Arrays.asList(children);
+    }
+
+    @Override
+    public DRElementType getObjectType() {
+      return children.isEmpty()
+          ? DRElementType.DR_ELEMENT_TYPE_FILE
+          : DRElementType.DR_ELEMENT_TYPE_DIRECTORY;
+    }
+
+    @Override
+    public String getObjectName() {
+      return name;
+    }
+
+    @Override
+    public String getCreated() {
+      return "2020-06-01";
+    }
+
+    @Override
+    public String getId() {
+      return "id-" + name;
+    }
+
+    @Override
+    public String getDescription() {
+      return "";
+    }
+
+    @Override
+    public boolean isLeaf() {
+      return children.isEmpty();
+    }
+
+    @Override
+    public List<DRElement> enumerate() {
+      return children;
+    }
+  }
+
+  // root
+  //   a
+  //     x
+  //   y
+  private static DRElement makeTree() {
+    return new FakeElement(
+        "root", new FakeElement("a", new FakeElement("x")), new FakeElement("y"));
+  }
+
+  @Before
+  public void setup() {
+    savedOut = System.out;
+    captured = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(captured, true));
+  }
+
+  @After
+  public void teardown() {
+    System.setOut(savedOut);
+  }
+
+  private JsonNode capturedJson() throws Exception {
+    return objectMapper.readTree(new String(captured.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testListJson() throws Exception {
+    CommandUtils.outputJson(writer -> DRCommands.listJson(makeTree().iterate(), writer));
+
+    JsonNode list = capturedJson();
+    assertThat("array of children", list.size(), equalTo(2));
+    assertThat("first name", list.get(0).get("name").asText(), equalTo("a"));
+    assertThat("first type", list.get(0).get("type").asText(), equalTo("dir"));
+    assertThat("second id", list.get(1).get("id").asText(), equalTo("id-y"));
+    assertThat("second created", list.get(1).get("createdDate").asText(), equalTo("2020-06-01"));
+  }
+
+  @Test
+  public void testListRecursiveJson() throws Exception {
+    CommandUtils.outputJson(writer -> DRCommands.listRecursiveJson(makeTree(), "/root", 2, writer));
+
+    // One object per directory, in walk order
+    JsonNode list = capturedJson();
+    assertThat("one object per directory", list.size(), equalTo(2));
+    assertThat("root path", list.get(0).get("path").asText(), equalTo("/root"));
+    JsonNode rootContents = list.get(0).get("contents");
+    assertThat("root contents", rootContents.size(), equalTo(2));
+    assertThat("root first", rootContents.get(0).get("name").asText(), equalTo("a"));
+    assertThat("root second", rootContents.get(1).get("name").asText(), equalTo("y"));
+    assertThat("dir path", list.get(1).get("path").asText(), equalTo("/root/a"));
+    JsonNode dirContents = list.get(1).get("contents");
+    assertThat("dir contents", dirContents.size(), equalTo(1));
+    assertThat("dir file", dirContents.get(0).get("name").asText(), equalTo("x"));
+  }
+
+  @Test
+  public void testTreeRecursiveJson() throws Exception {
+    CommandUtils.outputJson(
+        writer -> DRCommands.treeRecursiveJson(makeTree(), Integer.MAX_VALUE, 2, writer));
+
+    JsonNode root = capturedJson();
+    assertThat("root name", root.get("name").asText(), equalTo("root"));
+    JsonNode children = root.get("children");
+    assertThat("root children", children.size(), equalTo(2));
+    JsonNode dir = children.get(0);
+    assertThat("dir name", dir.get("name").asText(), equalTo("a"));
+    assertThat("dir children", dir.get("children").size(), equalTo(1));
+    assertThat("nested file", dir.get("children").get(0).get("name").asText(), equalTo("x"));
+    JsonNode file = children.get(1);
+    assertThat("file name", file.get("name").asText(), equalTo("y"));
+    assertThat("files have no children", file.has("children"), equalTo(false));
+  }
+
+  @Test
+  public void testTreeDepthLimit() throws Exception {
+    CommandUtils.outputJson(writer -> DRCommands.treeRecursiveJson(makeTree(), 1, 2, writer));
+
+    JsonNode children = capturedJson().get("children");
+    assertThat("root children", children.size(), equalTo(2));
+    assertThat("not expanded past the depth", children.get(0).has("children"), equalTo(false));
+  }
+}
@@ -0,0 +1,118 @@
+package bio.terra.command;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class RangedDownloadTest {
+
+  private static byte[] makeData(int size) {
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  // Serve ranges of the data, taking longer for earlier ranges so they finish out of order
+  private static RangedDownload download(byte[] data) {
+    Random random = new Random(7);
+    return new RangedDownload(
+        (position, length) -> {
+          try {
+            Thread.sleep(random.nextInt(5));
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          return Channels.newChannel(
+              new ByteArrayInputStream(data, (int) position, data.length - (int) position));
+        },
+        data.length);
+  }
+
+  @Test
+  public void testChannelOutputInOrder() throws Exception {
+    byte[] data = makeData(100003);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    download(data).parallelism(3).chunkSize(1000).toChannel(Channels.newChannel(out));
+    assertArrayEquals("same bytes", data, out.toByteArray());
+
+    out.reset();
+    download(new byte[0]).toChannel(Channels.newChannel(out));
+    assertThat("empty object", out.size(), equalTo(0));
+  }
+
+  @Test
+  public void testChecksumsComputedInFlight() throws Exception {
+    byte[] data = makeData(50001);
+    Crc32c expectedCrc = new Crc32c();
+    expectedCrc.update(data, 0, data.length);
+    String expectedMd5 = FileChecksums.toHex(FileChecksums.newMd5().digest(data));
+
+    RangedDownload download =
+        download(data).parallelism(4).chunkSize(777).computeCrc32c(true).computeMd5(true);
+    download.toChannel(Channels.newChannel(new ByteArrayOutputStream()));
+    assertThat("crc32c", download.getCrc32c(), equalTo(expectedCrc.getValue()));
+    assertThat("md5", download.getMd5(), equalTo(expectedMd5));
+  }
+
+  @Test
+  public void testFileOutput() throws Exception {
+    byte[] data = makeData(65536);
+    File file = File.createTempFile("ranged", ".dat");
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      download(data).parallelism(4).chunkSize(4096).toFile(channel);
+    }
+    assertArrayEquals("same bytes", data, Files.readAllBytes(file.toPath()));
+    Files.delete(file.toPath());
+  }
+
+  @Test(expected = EOFException.class)
+  public void testShortObjectFails() throws Exception {
+    byte[] data = makeData(5000);
+    new RangedDownload(
+            (position, length) ->
+                Channels.newChannel(new ByteArrayInputStream(data, (int) position, 10)),
+            data.length)
+        .chunkSize(1000)
+        .toChannel(Channels.newChannel(new ByteArrayOutputStream()));
+  }
+
+  @Test
+  public void testBufferMemory() throws Exception {
+    assertThat("512m", RangedDownload.parseMemorySize("512m"), equalTo(512L << 20));
+    assertThat("2G", RangedDownload.parseMemorySize("2G"), equalTo(2L << 30));
+    assertThat("bytes", RangedDownload.parseMemorySize("1048576"), equalTo(1048576L));
+    assertThat("malformed", RangedDownload.parseMemorySize("lots"), equalTo(-1L));
+    assertThat("too large", RangedDownload.parseMemorySize("9999999999999t"), equalTo(-1L));
+
+    assertThat(
+        "two buffers per thread",
+        RangedDownload.bufferMemory(4, RangedDownload.DEFAULT_CHUNK_SIZE),
+        equalTo(64L << 20));
+    assertThat(
+        "budget is bounded",
+        RangedDownload.maxBufferMemory() <= RangedDownload.MAX_BUFFER_MEMORY,
+        equalTo(true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testChunkSizeLimit() throws Exception {
+    download(makeData(10)).chunkSize(RangedDownload.MAX_CHUNK_SIZE + 1);
+  }
+}
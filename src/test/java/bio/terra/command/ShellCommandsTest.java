@@ -0,0 +1,43 @@
+package bio.terra.command;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class ShellCommandsTest {
+
+  @Test
+  public void testSplitLine() {
+    assertThat(
+        "plain words",
+        ShellCommands.splitLine("  dr   ls -R "),
+        equalTo(Arrays.asList("dr", "ls", "-R")));
+    assertThat(
+        "quotes group and are removed",
+        ShellCommands.splitLine("cd \"/my snap/files\" 'a \"b\"' x\"y z\""),
+        equalTo(Arrays.asList("cd", "/my snap/files", "a \"b\"", "xy z")));
+    assertThat(
+        "escapes",
+        ShellCommands.splitLine("describe a\\ b \"c\\\"d\""),
+        equalTo(Arrays.asList("describe", "a b", "c\"d")));
+    assertThat(
+        "empty quotes",
+        ShellCommands.splitLine("set x ''"),
+        equalTo(Arrays.asList("set", "x", "")));
+    assertThat("blank", ShellCommands.splitLine("   "), equalTo(Collections.emptyList()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnmatchedQuote() {
+    ShellCommands.splitLine("cd \"/oops");
+  }
+}
@@ -0,0 +1,7 @@
+package bio.terra.common.category;
+
+/**
+ * Startup time test category. These tests measure wall-clock time, which depends on the machine
+ * and its load, so they only run in the testCLIStartup task.
+ */
+public interface CLIStartup {}
@@ -0,0 +1,64 @@
+package bio.terra.context;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import bio.terra.datarepo.model.BulkLoadFileResultModel;
+import bio.terra.datarepo.model.BulkLoadFileState;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class LoadJournalTest {
+
+  private static BulkLoadFileResultModel result(String target, BulkLoadFileState state) {
+    return new BulkLoadFileResultModel()
+        .sourcePath("gs://bucket" + target)
+        .targetPath(target)
+        .state(state);
+  }
+
+  @Test
+  public void testLatestResultWins() throws Exception {
+    File root = Files.createTempDirectory("loadjournal").toFile();
+    File directory = new File(root, "journal");
+    LoadJournal journal = new LoadJournal(directory, "my/tag");
+    assertThat("no journal yet", journal.readSucceededTargets(), equalTo(Collections.emptySet()));
+
+    journal.append(
+        Arrays.asList(
+            result("/a", BulkLoadFileState.SUCCEEDED),
+            result("/b", BulkLoadFileState.FAILED),
+            result("/c", BulkLoadFileState.SUCCEEDED)));
+    journal.append(
+        Arrays.asList(
+            result("/b", BulkLoadFileState.SUCCEEDED), result("/c", BulkLoadFileState.FAILED)));
+    journal.close();
+
+    // A crash can leave a partial line at the end
+    Files.write(
+        journal.getJournalFile().toPath(),
+        "{\"targetPath\":\"/d\",\"sta".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    LoadJournal reopened = new LoadJournal(directory, "my/tag");
+    assertThat(
+        "succeeded targets",
+        reopened.readSucceededTargets(),
+        equalTo(new HashSet<>(Arrays.asList("/a", "/b"))));
+    Files.delete(reopened.getJournalFile().toPath());
+    Files.delete(directory.toPath());
+    Files.delete(root.toPath());
+  }
+}
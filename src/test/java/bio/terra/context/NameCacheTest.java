@@ -0,0 +1,165 @@
+package bio.terra.context;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import bio.terra.context.NameCache.ObjectType;
+import bio.terra.datarepo.model.DatasetSummaryModel;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class NameCacheTest {
+  private File directory;
+  private final AtomicReference<String> basePath = new AtomicReference<>("https://repo-a");
+  private final AtomicLong ttlMillis = new AtomicLong(60000);
+
+  @Before
+  public void setup() throws Exception {
+    directory = new File(Files.createTempDirectory("namecache").toFile(), ".jadecli");
+  }
+
+  @After
+  public void teardown() throws Exception {
+    try (Stream<Path> paths = Files.walk(directory.getParentFile().toPath())) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  private NameCache newCache() {
+    return new NameCache(directory, basePath::get, ttlMillis::get);
+  }
+
+  private static DatasetSummaryModel dataset(String id) {
+    return new DatasetSummaryModel().id(id).name("ds");
+  }
+
+  private String cacheFileContents() throws Exception {
+    return new String(
+        Files.readAllBytes(new File(directory, "namecache.properties").toPath()),
+        StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testKeyedByBasePath() throws Exception {
+    NameCache cache = newCache();
+    assertThat("empty cache", cache.get(ObjectType.DATASET, "ds", Object.class), nullValue());
+
+    cache.put(ObjectType.DATASET, "ds", dataset("id-a"));
+    assertThat(
+        "hit",
+        cache.get(ObjectType.DATASET, "ds", DatasetSummaryModel.class).getId(),
+        equalTo("id-a"));
+    assertThat(
+        "other type misses",
+        cache.get(ObjectType.SNAPSHOT, "ds", DatasetSummaryModel.class),
+        nullValue());
+
+    basePath.set("https://repo-b");
+    assertThat(
+        "other data repo misses",
+        cache.get(ObjectType.DATASET, "ds", DatasetSummaryModel.class),
+        nullValue());
+    cache.put(ObjectType.DATASET, "ds", dataset("id-b"));
+    basePath.set("https://repo-a");
+    assertThat(
+        "entries per data repo",
+        cache.get(ObjectType.DATASET, "ds", DatasetSummaryModel.class).getId(),
+        equalTo("id-a"));
+  }
+
+  @Test
+  public void testTtl() throws Exception {
+    NameCache cache = newCache();
+    ttlMillis.set(0);
+    cache.put(ObjectType.DATASET, "ds", dataset("id-a"));
+    assertThat(
+        "zero TTL does not store",
+        new File(directory, "namecache.properties").exists(),
+        equalTo(false));
+
+    ttlMillis.set(50);
+    cache.put(ObjectType.DATASET, "ds", dataset("id-a"));
+    Thread.sleep(100);
+    assertThat(
+        "expired entry misses",
+        cache.get(ObjectType.DATASET, "ds", DatasetSummaryModel.class),
+        nullValue());
+
+    // The next update drops expired entries from the file
+    ttlMillis.set(60000);
+    cache.put(ObjectType.PROFILE, "other", dataset("id-p"));
+    assertThat("expired entry removed", cacheFileContents().contains("dataset ds"), equalTo(false));
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    NameCache cache = newCache();
+    cache.put(ObjectType.DATASET, "ds", dataset("id-a"));
+    cache.put(ObjectType.SNAPSHOT, "snap", dataset("id-s"));
+    cache.put(ObjectType.PROFILE, "prof", dataset("id-p"));
+
+    cache.invalidate(ObjectType.SNAPSHOT, "snap");
+    assertThat(
+        "invalidated",
+        cache.get(ObjectType.SNAPSHOT, "snap", DatasetSummaryModel.class),
+        nullValue());
+
+    // Only entries this process was served are suspect after a 404
+    NameCache reader = newCache();
+    reader.get(ObjectType.DATASET, "ds", DatasetSummaryModel.class);
+    cache.invalidateServed();
+    assertThat(
+        "not served by this cache, so kept",
+        cache.get(ObjectType.DATASET, "ds", DatasetSummaryModel.class).getId(),
+        equalTo("id-a"));
+    reader.invalidateServed();
+    assertThat(
+        "served entry removed",
+        cache.get(ObjectType.DATASET, "ds", DatasetSummaryModel.class),
+        nullValue());
+    assertThat(
+        "unserved entry kept",
+        cache.get(ObjectType.PROFILE, "prof", DatasetSummaryModel.class).getId(),
+        equalTo("id-p"));
+  }
+
+  @Test
+  public void testUpdatesFromSeveralProcesses() throws Exception {
+    // Two caches on one directory stand in for two jadecli processes. Each update re-reads the
+    // file under the lock, so neither loses the other's entries.
+    NameCache first = newCache();
+    NameCache second = newCache();
+    first.put(ObjectType.DATASET, "one", dataset("id-1"));
+    second.put(ObjectType.DATASET, "two", dataset("id-2"));
+    first.put(ObjectType.DATASET, "three", dataset("id-3"));
+
+    NameCache reader = newCache();
+    String[] names = new String[] {"one", "two", "three"};
+    for (int i = 0; i < names.length; i++) {
+      assertThat(
+          "entry " + names[i],
+          reader.get(ObjectType.DATASET, names[i], DatasetSummaryModel.class).getId(),
+          equalTo("id-" + (i + 1)));
+    }
+
+    // Updates rename a temp file into place; none are left behind
+    String[] files = directory.list();
+    assertThat("cache and lock files only", files == null ? 0 : files.length, equalTo(2));
+  }
+}
@@ -0,0 +1,35 @@
+package bio.terra.context;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class TokenCacheTest {
+
+  @Test
+  public void testTokenIsKeptPerLogin() throws Exception {
+    File directory = Files.createTempDirectory("tokencache").toFile();
+    TokenCache cache = new TokenCache(directory);
+    assertThat("empty cache", cache.load("user"), nullValue());
+
+    cache.save("sa /keys/a.json", new TokenCache.Entry("token-a", 12345L));
+    TokenCache.Entry entry = new TokenCache(directory).load("sa /keys/a.json");
+    assertThat("token", entry.getToken(), equalTo("token-a"));
+    assertThat("expiry", entry.getExpiresMillis(), equalTo(12345L));
+    assertThat("other login misses", cache.load("sa /keys/b.json"), nullValue());
+
+    cache.clear();
+    assertThat("cleared", cache.load("sa /keys/a.json"), nullValue());
+    Files.delete(directory.toPath());
+  }
+}
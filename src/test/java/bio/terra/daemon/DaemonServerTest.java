@@ -0,0 +1,86 @@
+package bio.terra.daemon;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.command.CommandUtils;
+import bio.terra.common.category.CLIUnit;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class DaemonServerTest {
+
+  @Test
+  public void testCommandsRunInDaemon() throws Exception {
+    File directory = Files.createTempDirectory("daemon").toFile();
+    File daemonFile = new File(directory, "daemon.properties");
+    DaemonServer server =
+        new DaemonServer(
+            args -> {
+              System.out.print("out:" + String.join(",", args));
+              System.err.print("err");
+              if (args[0].equals("fail")) {
+                CommandUtils.printErrorAndExit("failed");
+              }
+              return 0;
+            },
+            daemonFile);
+    Thread serverThread =
+        new Thread(
+            () -> {
+              try {
+                server.serve();
+              } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+              }
+            });
+    serverThread.start();
+    for (int i = 0; i < 100 && !daemonFile.exists(); i++) {
+      Thread.sleep(50);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    Integer status =
+        DaemonClient.forward(
+            new String[] {"dr", "list"}, daemonFile, new PrintStream(out), new PrintStream(err));
+    assertThat("status", status, equalTo(0));
+    assertThat("stdout", out.toString(StandardCharsets.UTF_8.name()), equalTo("out:dr,list"));
+    assertThat("stderr", err.toString(StandardCharsets.UTF_8.name()), equalTo("err"));
+
+    err.reset();
+    status =
+        DaemonClient.forward(
+            new String[] {"fail"}, daemonFile, new PrintStream(out), new PrintStream(err));
+    assertThat("exit status", status, equalTo(1));
+    assertThat(
+        "error message",
+        err.toString(StandardCharsets.UTF_8.name()),
+        equalTo("errfailed" + System.lineSeparator()));
+
+    assertThat(
+        "daemon commands run here",
+        DaemonClient.forward(
+            new String[] {"daemon", "status"}, daemonFile, System.out, System.err),
+        nullValue());
+
+    assertThat("stopped", DaemonClient.stop(daemonFile), equalTo(true));
+    serverThread.join(5000);
+    assertThat("daemon file removed", daemonFile.exists(), equalTo(false));
+    assertThat(
+        "no daemon",
+        DaemonClient.forward(new String[] {"dr", "list"}, daemonFile, System.out, System.err),
+        nullValue());
+    Files.delete(directory.toPath());
+  }
+}
@@ -18,11 +18,15 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 import org.junit.Assert;
 
 /**
@@ -63,6 +67,71 @@ public final class CLITestingUtils {
     return outputLines;
   }
 
+  /**
+   * Make a temporary user home directory for a jadecli process, with the .jadecli directory that
+   * the first login normally makes. Delete it with deleteHome.
+   *
+   * @return the home directory
+   * @throws IOException
+   */
+  public static File createHome() throws IOException {
+    File home = Files.createTempDirectory("jadecli-home").toFile();
+    Files.createDirectory(home.toPath().resolve(".jadecli"));
+    return home;
+  }
+
+  /**
+   * Delete a home directory made by createHome, and everything the process wrote to it.
+   *
+   * @param home the home directory
+   * @throws IOException
+   */
+  public static void deleteHome(File home) throws IOException {
+    try (Stream<Path> paths = Files.walk(home.toPath())) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  /**
+   * Run jadecli's Main in a new JVM on the test class path, the way a user runs it. The process
+   * gets its own user home, so no session, token or daemon of the person running the tests is
+   * used. Asserts that the command exits with status 0.
+   *
+   * @param home user home directory for the process, from createHome
+   * @param jvmOptions options for the JVM, such as -verbose:class
+   * @param args the command line arguments
+   * @return a List of the lines written to stdout and stderr
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public static List<String> runJadecli(File home, List<String> jvmOptions, String... args)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+    command.addAll(jvmOptions);
+    command.addAll(
+        Arrays.asList(
+            "-Duser.home=" + home.getPath(),
+            "-cp",
+            System.getProperty("java.class.path"),
+            "bio.terra.Main"));
+    command.addAll(Arrays.asList(args));
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+    Assert.assertEquals(
+        "exit status of " + String.join(" ", args) + ": " + lines, 0, process.waitFor());
+    return lines;
+  }
+
   /**
    * Read from a file in the resources/CLICommandTests directory.
    *
@@ -0,0 +1,87 @@
+package bio.terra.formatting;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class TableFormatterTest {
+
+  private static class FormatPair extends TableFormatBase {
+    private static final String[] headers = new String[] {"Key", "Value"};
+    private static final int[] lengths = new int[] {3, 5};
+    private static final boolean[] computeLengths = new boolean[] {true, false};
+    private final String key;
+    private final String value;
+
+    FormatPair(String key, String value) {
+      super(headers, lengths, computeLengths);
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String getData(int index) {
+      return (index == 0) ? key : value;
+    }
+  }
+
+  private static String print(TableFormatter<FormatPair> formatter, ByteArrayOutputStream out) {
+    formatter.printTable();
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testListMatchesPrintfLayout() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(out, true, "UTF-8");
+    List<FormatPair> items =
+        Arrays.asList(new FormatPair("a", "1"), new FormatPair("longer", null));
+    String expected =
+        String.format("  %-6s | %-5s%n", "Key", "Value")
+            .concat(String.format("  %-6s | %-5s%n", "------", "-----"))
+            .concat(String.format("  %-6s | %-5s%n", "a", "1"))
+            .concat(String.format("  %-6s | %-5s%n", "longer", null))
+            .replace(System.lineSeparator(), "\n");
+    String actual = print(new TableFormatter<>(items, ps, 2), out);
+    assertThat("same layout as printf", actual, equalTo(expected));
+  }
+
+  @Test
+  public void testEmptyAndStreamingSample() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(out, true, "UTF-8");
+    List<FormatPair> empty = Collections.emptyList();
+    String actual = print(new TableFormatter<>(empty, ps, 0), out);
+    assertThat("empty list prints nothing", actual, equalTo(""));
+
+    // Only the first two rows size the key column; the third is wider and overflows
+    List<FormatPair> items = new ArrayList<>();
+    items.add(new FormatPair("ab", "1"));
+    items.add(new FormatPair("abcd", "2"));
+    items.add(new FormatPair("abcdefgh", "3"));
+    Iterator<FormatPair> iterator = items.iterator();
+    String[] lines = print(new TableFormatter<>(iterator, ps, 0, 2), out).split("\n");
+    assertThat("row count", lines.length, equalTo(5));
+    assertThat("width from sample", lines[1], equalTo("---- | -----"));
+    assertThat("late row overflows", lines[4], equalTo("abcdefgh | 3    "));
+
+    out.reset();
+    lines = print(new TableFormatter<>(items.iterator(), ps, 0, 0).widthHints(10), out).split("\n");
+    assertThat("hinted width", lines[1], equalTo("---------- | -----"));
+  }
+}
@@ -0,0 +1,189 @@
+package bio.terra.model;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import bio.terra.common.category.CLIUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class TreeWalkerTest {
+
+  // Directory with a fixed fan out. Enumerate sleeps to simulate a data repo call and tracks the
+  // number of enumerations in flight and finished.
+  private static class FakeDirectory extends DRElement {
+    private final String name;
+    private final int fanOut;
+    private final int levels;
+    private final AtomicInteger inFlight;
+    private final AtomicInteger maxInFlight;
+    private final AtomicInteger enumerated;
+
+    FakeDirectory(
+        String name, int fanOut, int levels, AtomicInteger inFlight, AtomicInteger maxInFlight) {
+      this(name, fanOut, levels, inFlight, maxInFlight, new AtomicInteger());
+    }
+
+    FakeDirectory(
+        String name,
+        int fanOut,
+        int levels,
+        AtomicInteger inFlight,
+        AtomicInteger maxInFlight,
+        AtomicInteger enumerated) {
+      this.name = name;
+      this.fanOut = fanOut;
+      this.levels = levels;
+      this.inFlight = inFlight;
+      this.maxInFlight = maxInFlight;
+      this.enumerated = enumerated;
+    }
+
+    @Override
+    public DRElementType getObjectType() {
+      return DRElementType.DR_ELEMENT_TYPE_DIRECTORY;
+    }
+
+    @Override
+    public String getObjectName() {
+      return name;
+    }
+
+    @Override
+    public String getCreated() {
+      return "";
+    }
+
+    @Override
+    public String getId() {
+      return name;
+    }
+
+    @Override
+    public String getDescription() {
+      return "";
+    }
+
+    @Override
+    public boolean isLeaf() {
+      return levels == 0;
+    }
+
+    @Override
+    public List<DRElement> enumerate() {
+      if (name.equals("bad")) {
+        throw new IllegalStateException("enumerate failed");
+      }
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        TimeUnit.MILLISECONDS.sleep(5);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      List<DRElement> children = new ArrayList<>();
+      for (int i = 0; i < fanOut; i++) {
+        String childName = (levels == 2 && i == 1 && fanOut == 2) ? "bad" : name + "." + i;
+        children.add(
+            new FakeDirectory(childName, fanOut, levels - 1, inFlight, maxInFlight, enumerated));
+      }
+      inFlight.decrementAndGet();
+      enumerated.incrementAndGet();
+      return children;
+    }
+  }
+
+  // The order the serial recursive walk produces
+  private static void serialWalk(DRElement element, String path, List<String> out) {
+    out.add(path);
+    if (!element.isLeaf()) {
+      for (DRElement child : element.enumerate()) {
+        serialWalk(child, path + "/" + child.getObjectName(), out);
+      }
+    }
+  }
+
+  @Test
+  public void testMatchesSerialOrder() throws Exception {
+    AtomicInteger maxInFlight = new AtomicInteger();
+    DRElement root = new FakeDirectory("r", 4, 4, new AtomicInteger(), maxInFlight);
+
+    List<String> expected = new ArrayList<>();
+    serialWalk(root, "/r", expected);
+    assertThat("serial walk is single threaded", maxInFlight.get(), equalTo(1));
+
+    List<String> actual = Collections.synchronizedList(new ArrayList<>());
+    new TreeWalker(6)
+        .walk(root, "/r", Integer.MAX_VALUE, (element, path, depth, children) -> actual.add(path));
+
+    assertThat("same order as the serial walk", actual, equalTo(expected));
+    assertTrue("enumerations ran in parallel", maxInFlight.get() > 1);
+    assertTrue("concurrency is bounded", maxInFlight.get() <= 6);
+  }
+
+  @Test
+  public void testDepthLimitAndError() throws Exception {
+    DRElement root = new FakeDirectory("r", 3, 3, new AtomicInteger(), new AtomicInteger());
+    List<Integer> depths = new ArrayList<>();
+    new TreeWalker(2).walk(root, "", 1, (element, path, depth, children) -> depths.add(depth));
+    assertThat("root plus its children", depths.size(), equalTo(4));
+
+    DRElement badRoot = new FakeDirectory("r", 2, 3, new AtomicInteger(), new AtomicInteger());
+    List<String> visited = new ArrayList<>();
+    try {
+      new TreeWalker(2)
+          .walk(
+              badRoot,
+              "",
+              Integer.MAX_VALUE,
+              (element, path, depth, children) -> visited.add(element.getObjectName()));
+      fail("expected the enumerate error");
+    } catch (IllegalStateException ex) {
+      assertThat("error passed through", ex.getMessage(), equalTo("enumerate failed"));
+    }
+    assertTrue("visited elements before the failure", visited.contains("r.0.0"));
+  }
+
+  @Test
+  public void testPrefetchIsBounded() throws Exception {
+    AtomicInteger enumerated = new AtomicInteger();
+    DRElement root =
+        new FakeDirectory("r", 4, 4, new AtomicInteger(), new AtomicInteger(), enumerated);
+    int concurrency = 2;
+    // The walk may start the element the visitor is waiting for beyond the limit
+    int limit = concurrency * TreeWalker.PREFETCH_PER_THREAD + 1;
+
+    AtomicInteger visitedExpanded = new AtomicInteger();
+    AtomicInteger maxAhead = new AtomicInteger();
+    new TreeWalker(concurrency)
+        .walk(
+            root,
+            "",
+            Integer.MAX_VALUE,
+            (element, path, depth, children) -> {
+              if (children != null) {
+                maxAhead.accumulateAndGet(
+                    enumerated.get() - visitedExpanded.incrementAndGet(), Math::max);
+              }
+              // A slow visitor
+              try {
+                TimeUnit.MILLISECONDS.sleep(1);
+              } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+              }
+            });
+
+    assertThat("every directory enumerated", enumerated.get(), equalTo(85));
+    assertTrue("enumerated ahead of the visitor: " + maxAhead.get(), maxAhead.get() <= limit);
+  }
+}
@@ -0,0 +1,103 @@
+package bio.terra.tdrwrapper;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import bio.terra.datarepo.model.BulkLoadArrayRequestModel;
+import bio.terra.datarepo.model.BulkLoadArrayResultModel;
+import bio.terra.datarepo.model.BulkLoadFileModel;
+import bio.terra.datarepo.model.BulkLoadFileResultModel;
+import bio.terra.datarepo.model.BulkLoadFileState;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class BulkFileLoaderTest {
+
+  private static List<BulkLoadFileModel> makeFiles(int count) {
+    List<BulkLoadFileModel> files = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      files.add(new BulkLoadFileModel().sourcePath("gs://bucket/f" + i).targetPath("/f" + i));
+    }
+    return files;
+  }
+
+  private static BulkLoadArrayResultModel succeed(BulkLoadArrayRequestModel request) {
+    BulkLoadArrayResultModel result = new BulkLoadArrayResultModel();
+    result.loadFileResults(new ArrayList<>());
+    for (BulkLoadFileModel file : request.getLoadArray()) {
+      result.addLoadFileResultsItem(
+          new BulkLoadFileResultModel()
+              .sourcePath(file.getSourcePath())
+              .targetPath(file.getTargetPath())
+              .state(BulkLoadFileState.SUCCEEDED));
+    }
+    return result;
+  }
+
+  @Test
+  public void testArraysAndJobLimit() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<String> loadTags = new ArrayList<>();
+
+    BulkFileLoader loader =
+        new BulkFileLoader(
+                request -> {
+                  loadTags.add(request.getLoadTag());
+                  maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                  return CompletableFuture.supplyAsync(
+                      () -> {
+                        running.decrementAndGet();
+                        return succeed(request);
+                      });
+                })
+            .loadTag("tag")
+            .arraySize(3)
+            .jobs(2);
+
+    List<BulkLoadFileResultModel> results = loader.load(makeFiles(10).iterator());
+    assertThat("one result per file", results.size(), equalTo(10));
+    assertThat("four arrays", loadTags.size(), equalTo(4));
+    assertThat("tag per array", loadTags.get(3), equalTo("tag-3"));
+    assertThat("job limit held", maxRunning.get() <= 2, equalTo(true));
+  }
+
+  @Test
+  public void testFailedArrayReportsEachFile() throws Exception {
+    List<Integer> arrays = new ArrayList<>();
+    BulkFileLoader loader =
+        new BulkFileLoader(
+                request -> {
+                  CompletableFuture<BulkLoadArrayResultModel> future = new CompletableFuture<>();
+                  if (request.getLoadTag().endsWith("-1")) {
+                    future.completeExceptionally(new IllegalStateException("boom"));
+                  } else {
+                    future.complete(succeed(request));
+                  }
+                  return future;
+                })
+            .loadTag("tag")
+            .arraySize(2)
+            .arrayListener((arrayNumber, request, results) -> arrays.add(arrayNumber));
+
+    List<BulkLoadFileResultModel> results = loader.load(makeFiles(5).iterator());
+    assertThat("one result per file", results.size(), equalTo(5));
+    long failed = results.stream().filter(r -> r.getState() == BulkLoadFileState.FAILED).count();
+    assertThat("failed array files", failed, equalTo(2L));
+    assertThat("listener saw every array", arrays.size(), equalTo(3));
+    for (BulkLoadFileResultModel result : results) {
+      if (result.getState() == BulkLoadFileState.FAILED) {
+        assertThat("error carried", result.getError(), equalTo("boom"));
+      }
+    }
+  }
+}
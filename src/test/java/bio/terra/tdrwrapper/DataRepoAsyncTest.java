@@ -0,0 +1,131 @@
+package bio.terra.tdrwrapper;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import bio.terra.common.category.CLIUnit;
+import bio.terra.datarepo.api.RepositoryApi;
+import bio.terra.datarepo.api.ResourcesApi;
+import bio.terra.datarepo.client.ApiException;
+import bio.terra.datarepo.client.ApiResponse;
+import bio.terra.datarepo.model.DatasetModel;
+import bio.terra.datarepo.model.DatasetRequestModel;
+import bio.terra.datarepo.model.DatasetSummaryModel;
+import bio.terra.datarepo.model.JobModel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class DataRepoAsyncTest {
+
+  // Fake repository api: create dataset jobs finish on the second poll; retrieveDataset blocks
+  // until released so we can exercise timeout and cancel.
+  private static class FakeRepositoryApi extends RepositoryApi {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean interrupted;
+    private int polls;
+
+    @Override
+    public JobModel createDataset(DatasetRequestModel request) throws ApiException {
+      return new JobModel().id("job-" + request.getName());
+    }
+
+    @Override
+    public synchronized ApiResponse<JobModel> retrieveJobWithHttpInfo(String id)
+        throws ApiException {
+      JobModel.JobStatusEnum status =
+          (polls++ % 2 == 0) ? JobModel.JobStatusEnum.RUNNING : JobModel.JobStatusEnum.SUCCEEDED;
+      return new ApiResponse<>(200, new HashMap<>(), new JobModel().id(id).jobStatus(status));
+    }
+
+    @Override
+    public Object retrieveJobResult(String id) throws ApiException {
+      Map<String, Object> result = new HashMap<>();
+      result.put("id", id + "-dataset");
+      result.put("name", id);
+      return result;
+    }
+
+    @Override
+    public DatasetModel retrieveDataset(String id) throws ApiException {
+      if (id.equals("error")) {
+        throw new AssertionError("broken call");
+      }
+      if (id.equals("slow")) {
+        try {
+          release.await();
+        } catch (InterruptedException ex) {
+          interrupted = true;
+          throw new ApiException(500, "interrupted");
+        }
+      }
+      return new DatasetModel().id(id).name("name-" + id);
+    }
+  }
+
+  @Test
+  public void testCompose() throws Exception {
+    FakeRepositoryApi api = new FakeRepositoryApi();
+    DataRepoAsync async = new DataRepoAsync(new DataRepoWrap(api, new ResourcesApi(), 100), 2);
+
+    CompletableFuture<DatasetModel> pipeline =
+        async
+            .createDataset(new DatasetRequestModel().name("mine"))
+            .thenCompose(summary -> async.retrieveDataset(summary.getId()));
+
+    DatasetModel dataset = pipeline.get(10, TimeUnit.SECONDS);
+    assertThat("composed result", dataset.getName(), equalTo("name-job-mine-dataset"));
+    async.shutdown();
+  }
+
+  @Test
+  public void testTimeoutAndCancel() throws Exception {
+    FakeRepositoryApi api = new FakeRepositoryApi();
+    DataRepoAsync async = new DataRepoAsync(new DataRepoWrap(api, new ResourcesApi(), 100), 2);
+
+    CompletableFuture<DatasetModel> slow = async.retrieveDataset("slow");
+    try {
+      DataRepoAsync.withTimeout(slow, 100, TimeUnit.MILLISECONDS).get();
+      fail("expected a timeout");
+    } catch (ExecutionException ex) {
+      assertTrue("timeout is the cause", ex.getCause() instanceof TimeoutException);
+    }
+    assertTrue("timed out call is cancelled", slow.isCancelled());
+
+    // The interrupt is delivered asynchronously
+    for (int i = 0; i < 100 && !api.interrupted; i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertTrue("cancel interrupts the call", api.interrupted);
+
+    CompletableFuture<DatasetSummaryModel> create =
+        async.createDataset(new DatasetRequestModel().name("cancelled"));
+    assertTrue("cancel succeeds", create.cancel(true));
+    async.shutdown();
+  }
+
+  @Test
+  public void testErrorCompletesFuture() throws Exception {
+    DataRepoAsync async =
+        new DataRepoAsync(new DataRepoWrap(new FakeRepositoryApi(), new ResourcesApi(), 100), 2);
+    try {
+      async.retrieveDataset("error").get(5, TimeUnit.SECONDS);
+      fail("expected the error");
+    } catch (ExecutionException ex) {
+      assertTrue("error is the cause", ex.getCause() instanceof AssertionError);
+    }
+    async.shutdown();
+  }
+}
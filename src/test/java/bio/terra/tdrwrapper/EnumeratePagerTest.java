@@ -0,0 +1,82 @@
+package bio.terra.tdrwrapper;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import bio.terra.datarepo.model.DatasetSummaryModel;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class EnumeratePagerTest {
+
+  // Serves pages of a fixed number of generated dataset summaries and records the requests
+  private static class FakePageSource implements EnumeratePager.PageSource {
+    private final int total;
+    private final List<Integer> offsets = new ArrayList<>();
+
+    FakePageSource(int total) {
+      this.total = total;
+    }
+
+    @Override
+    public InputStream fetch(int offset, int limit) {
+      offsets.add(offset);
+      StringBuilder sb = new StringBuilder();
+      sb.append("{\"total\": ").append(total).append(", \"items\": [");
+      for (int i = offset; i < Math.min(offset + limit, total); i++) {
+        if (i > offset) {
+          sb.append(',');
+        }
+        sb.append("{\"id\": \"id").append(i).append("\", \"extra\": {\"nested\": [1, 2]},");
+        sb.append(" \"name\": \"name").append(i).append("\"}");
+      }
+      sb.append("]}");
+      return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testFindStopsAtMatch() throws Exception {
+    FakePageSource source = new FakePageSource(1000);
+    EnumeratePager<DatasetSummaryModel> pager =
+        new EnumeratePager<>(source, 10, DatasetSummaryModel.class);
+
+    DatasetSummaryModel summary = pager.findFirst("name", "name25");
+    assertThat("found the right item", summary.getId(), equalTo("id25"));
+    assertThat("only read the pages we needed", source.offsets.size(), equalTo(3));
+    assertThat("pages advance by page size", source.offsets.get(2), equalTo(20));
+    assertFalse("pager is closed after find", pager.hasNext());
+  }
+
+  @Test
+  public void testIterateAllAndMiss() throws Exception {
+    FakePageSource source = new FakePageSource(25);
+    EnumeratePager<DatasetSummaryModel> pager =
+        new EnumeratePager<>(source, 10, DatasetSummaryModel.class);
+    int count = 0;
+    while (pager.hasNext()) {
+      pager.next();
+      count++;
+    }
+    assertThat("iterated every item", count, equalTo(25));
+    assertThat("stopped after the short page", source.offsets.size(), equalTo(3));
+
+    FakePageSource emptySource = new FakePageSource(0);
+    assertNull(
+        "no match in empty listing",
+        new EnumeratePager<>(emptySource, 10, DatasetSummaryModel.class).findFirst("name", "x"));
+    assertThat("one request for an empty listing", emptySource.offsets.size(), equalTo(1));
+  }
+}
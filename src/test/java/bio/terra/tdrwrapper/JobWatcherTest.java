@@ -0,0 +1,117 @@
+package bio.terra.tdrwrapper;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import bio.terra.common.category.CLIUnit;
+import bio.terra.datarepo.api.RepositoryApi;
+import bio.terra.datarepo.client.ApiException;
+import bio.terra.datarepo.client.ApiResponse;
+import bio.terra.datarepo.model.DeleteResponseModel;
+import bio.terra.datarepo.model.JobModel;
+import bio.terra.tdrwrapper.exception.DataRepoNotFoundClientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class JobWatcherTest {
+
+  // Fake repository api: each job reports RUNNING for a set number of polls, then succeeds.
+  // Jobs named "fail-*" return a 404 from the result call.
+  private static class FakeRepositoryApi extends RepositoryApi {
+    private final Map<String, AtomicInteger> pollsRemaining = new ConcurrentHashMap<>();
+    private final AtomicInteger retrieveCount = new AtomicInteger();
+
+    void addJob(String jobId, int runningPolls) {
+      pollsRemaining.put(jobId, new AtomicInteger(runningPolls));
+    }
+
+    @Override
+    public ApiResponse<JobModel> retrieveJobWithHttpInfo(String id) throws ApiException {
+      retrieveCount.incrementAndGet();
+      boolean running = pollsRemaining.get(id).getAndDecrement() > 0;
+      JobModel job =
+          new JobModel()
+              .id(id)
+              .jobStatus(
+                  running ? JobModel.JobStatusEnum.RUNNING : JobModel.JobStatusEnum.SUCCEEDED);
+      return new ApiResponse<>(200, new HashMap<>(), job);
+    }
+
+    @Override
+    public Object retrieveJobResult(String id) throws ApiException {
+      if (id.startsWith("fail")) {
+        throw new ApiException(404, Collections.emptyMap(), null);
+      }
+      Map<String, Object> result = new HashMap<>();
+      result.put("objectState", "deleted");
+      return result;
+    }
+  }
+
+  @Test
+  public void testManyJobsOneThread() throws Exception {
+    FakeRepositoryApi api = new FakeRepositoryApi();
+    JobWatcher watcher = new JobWatcher(api, 100);
+
+    List<CompletableFuture<DeleteResponseModel>> futures = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      String jobId = "job" + i;
+      api.addJob(jobId, i % 5);
+      futures.add(watcher.watch(jobId, DeleteResponseModel.class));
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+    for (CompletableFuture<DeleteResponseModel> future : futures) {
+      assertThat(
+          "job result converted",
+          future.get().getObjectState(),
+          equalTo(DeleteResponseModel.ObjectStateEnum.DELETED));
+    }
+    // Each job is polled once per running report plus the final poll
+    assertThat("poll count", api.retrieveCount.get(), equalTo(200 + 2 * 200));
+    assertThat("nothing left to watch", watcher.getWatchedCount(), equalTo(0));
+    watcher.shutdown();
+  }
+
+  @Test
+  public void testFailureAndCancel() throws Exception {
+    FakeRepositoryApi api = new FakeRepositoryApi();
+    JobWatcher watcher = new JobWatcher(api, 100);
+
+    api.addJob("fail1", 1);
+    CompletableFuture<DeleteResponseModel> failed =
+        watcher.watch("fail1", DeleteResponseModel.class);
+    try {
+      failed.get(10, TimeUnit.SECONDS);
+      fail("expected the job to fail");
+    } catch (ExecutionException ex) {
+      assertTrue(
+          "data repo exception is the cause",
+          ex.getCause() instanceof DataRepoNotFoundClientException);
+    }
+
+    api.addJob("forever", Integer.MAX_VALUE);
+    WrapFuture<DeleteResponseModel> wrapFuture =
+        new WrapFuture<>("forever", watcher.watch("forever", DeleteResponseModel.class));
+    assertTrue("cancel succeeds", wrapFuture.cancel(false));
+    assertTrue("cancelled", wrapFuture.isCancelled());
+    assertThat("cancelled job is not watched", watcher.getWatchedCount(), equalTo(0));
+    watcher.shutdown();
+  }
+}
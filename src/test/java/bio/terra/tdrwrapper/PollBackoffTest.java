@@ -0,0 +1,65 @@
+package bio.terra.tdrwrapper;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import bio.terra.common.category.CLIUnit;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@Category(CLIUnit.class)
+public class PollBackoffTest {
+
+  @Test
+  public void testBackoffGrowsToCap() throws Exception {
+    PollBackoff backoff = new PollBackoff(10, 1000);
+
+    long first = backoff.nextDelayMillis(null);
+    assertThat("first delay is near the initial interval", first, lessThanOrEqualTo(10L));
+    assertThat("first delay is positive", first, greaterThan(0L));
+
+    long delay = 0;
+    for (int i = 0; i < 20; i++) {
+      delay = backoff.nextDelayMillis(null);
+      assertThat("delay never exceeds the cap", delay, lessThanOrEqualTo(1000L));
+    }
+    assertThat("delay reaches the jittered cap", delay, greaterThan(700L));
+
+    backoff.reset();
+    assertThat("reset returns to initial", backoff.nextDelayMillis(null), lessThanOrEqualTo(10L));
+  }
+
+  @Test
+  public void testHint() throws Exception {
+    PollBackoff backoff = new PollBackoff(10, 1000);
+    assertThat("hint is honored", backoff.nextDelayMillis(300L), equalTo(300L));
+    assertThat("hint above the cap is honored", backoff.nextDelayMillis(30000L), equalTo(30000L));
+    assertThat(
+        "hint has a ceiling",
+        backoff.nextDelayMillis(Long.MAX_VALUE),
+        equalTo(PollBackoff.MAX_HINT_MILLIS));
+    assertThat("zero hint is floored", backoff.nextDelayMillis(0L), equalTo(10L));
+
+    Map<String, List<String>> headers = new HashMap<>();
+    assertNull("no header, no hint", PollBackoff.hintFromHeaders(headers));
+    headers.put("retry-after", Collections.singletonList("2"));
+    assertThat("seconds form parsed", PollBackoff.hintFromHeaders(headers), equalTo(2000L));
+    headers.put("retry-after", Collections.singletonList("Wed, 21 Oct 2015 07:28:00 GMT"));
+    assertNull("date form ignored", PollBackoff.hintFromHeaders(headers));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadIntervals() throws Exception {
+    new PollBackoff(100, 10);
+  }
+}